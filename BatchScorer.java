@@ -0,0 +1,126 @@
+// BatchScorer.java
+import java.util.Arrays;
+
+/**
+ * Scores one guess against many targets in a single pass, for games played on several boards.
+ * <p>
+ * The targets are kept as a struct of arrays: one column per equation position holding that
+ * position's symbol for every board, and one column per symbol holding how often it occurs in
+ * every board's target. Each guess position is then a tight loop over the boards that reads one
+ * target column and one counter column and updates the boards' codes, with the branches of
+ * {@link Feedback#score(CharSequence, CharSequence)} turned into arithmetic on 0/1 masks so the
+ * JIT can unroll and vectorize it. Everything is an {@code int}, so the loops have one lane
+ * width. The result is the same code {@link Feedback} computes for every board, and scoring
+ * never allocates.
+ */
+public final class BatchScorer {
+    private final int length;
+    private final int[][] columns; // [position][board] symbol index
+    private final int[][] counts;  // [symbol][board] occurrences in the target
+    private final int[][] left;    // [symbol][board] occurrences not claimed yet by the guess
+    private final int[] powers;
+    private final int capacity;
+    private int boards;
+
+    public BatchScorer(int length, int capacity) {
+        if (length < 1 || length > Feedback.MAX_LENGTH) {
+            throw new IllegalArgumentException("Unsupported equation length: " + length);
+        }
+        this.length = length;
+        this.capacity = capacity;
+        this.columns = new int[length][capacity];
+        this.counts = new int[Feedback.ALPHABET.length()][capacity];
+        this.left = new int[Feedback.ALPHABET.length()][capacity];
+        this.powers = new int[length];
+        for (int i = 0, power = 1; i < length; i++, power *= 3) {
+            powers[i] = power;
+        }
+    }
+
+    /**
+     * Replaces the targets; board {@code b} is scored against {@code targets[b]}.
+     */
+    public void setTargets(CharSequence... targets) {
+        if (targets.length > capacity) {
+            throw new IllegalArgumentException("At most " + capacity + " targets, not " + targets.length);
+        }
+        for (int[] column : counts) {
+            Arrays.fill(column, 0);
+        }
+        for (int board = 0; board < targets.length; board++) {
+            CharSequence target = targets[board];
+            if (target.length() != length) {
+                throw new IllegalArgumentException("Target of the wrong length: " + target);
+            }
+            for (int i = 0; i < length; i++) {
+                int symbol = Feedback.symbolOf(target.charAt(i));
+                if (symbol < 0) {
+                    throw new IllegalArgumentException("Target with a non-equation symbol: " + target);
+                }
+                columns[i][board] = symbol;
+                counts[symbol][board]++;
+            }
+        }
+        boards = targets.length;
+    }
+
+    public int getBoardCount() {
+        return boards;
+    }
+
+    /**
+     * Scores {@code guess} against every target, writing board {@code b}'s code to
+     * {@code codes[b]}.
+     */
+    public void score(CharSequence guess, int[] codes) {
+        if (guess.length() != length) {
+            throw new IllegalArgumentException("Guess of the wrong length: " + guess);
+        }
+        if (codes.length < boards) {
+            throw new IllegalArgumentException("Room for " + codes.length + " codes, not " + boards);
+        }
+        int boards = this.boards;
+        int copied = 0; // Symbols whose counters are already in left
+        for (int i = 0; i < length; i++) {
+            int symbol = symbolAt(guess, i);
+            if ((copied & 1 << symbol) == 0) {
+                System.arraycopy(counts[symbol], 0, left[symbol], 0, boards);
+                copied |= 1 << symbol;
+            }
+        }
+        Arrays.fill(codes, 0, boards, 0);
+        // Exact matches first; they take their occurrence out of the counters
+        for (int i = 0; i < length; i++) {
+            int symbol = Feedback.symbolOf(guess.charAt(i));
+            int correct = Feedback.CORRECT * powers[i];
+            int[] column = columns[i];
+            int[] remaining = left[symbol];
+            for (int board = 0; board < boards; board++) {
+                int match = ((column[board] ^ symbol) - 1) >>> 31; // 1 if equal, else 0
+                codes[board] += match * correct;
+                remaining[board] -= match;
+            }
+        }
+        // Then every other position claims one unmatched occurrence, left to right
+        for (int i = 0; i < length; i++) {
+            int symbol = Feedback.symbolOf(guess.charAt(i));
+            int misplaced = Feedback.MISPLACED * powers[i];
+            int[] column = columns[i];
+            int[] remaining = left[symbol];
+            for (int board = 0; board < boards; board++) {
+                int match = ((column[board] ^ symbol) - 1) >>> 31;
+                int claim = (-remaining[board] >>> 31) & (1 - match); // 1 if not exact and one is left
+                codes[board] += claim * misplaced;
+                remaining[board] -= claim;
+            }
+        }
+    }
+
+    private static int symbolAt(CharSequence guess, int position) {
+        int symbol = Feedback.symbolOf(guess.charAt(position));
+        if (symbol < 0) {
+            throw new IllegalArgumentException("Guess with a non-equation symbol: " + guess);
+        }
+        return symbol;
+    }
+}
@@ -0,0 +1,288 @@
+// BoardGrid.java
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Arrays;
+
+/**
+ * Guess grid of one or more boards, each with one row per attempt and one cell per equation
+ * symbol, painted directly from primitive arrays instead of being built from labels.
+ * <p>
+ * Every tile is a symbol and a feedback state in two flat arrays; showing a guess writes one row
+ * of them and asks Swing to repaint just those tiles, and painting only visits the tiles inside
+ * the clip, so a 32-board game costs no more per guess than the cells it touches. A scored row
+ * turns over tile by tile: one timer firing about 60 times a second repaints the tiles that are
+ * still turning, whose height follows the flip, and stops once all of them lie flat. Nothing is
+ * allocated per frame; fonts and tile geometry are only recomputed when the grid is resized, so
+ * the grid scales to any equation length, number of attempts or number of boards. Several boards
+ * are laid out side by side, wrapping onto up to four rows of boards.
+ */
+public class BoardGrid extends JComponent implements ActionListener {
+    private static final Color EMPTY = Color.LIGHT_GRAY;
+    private static final Color OUTLINE = Color.LIGHT_GRAY;
+    private static final Color SOLVED_BORDER = new Color(0, 150, 0);
+    private static final byte BLANK = -1;
+    private static final long STILL = Long.MIN_VALUE;
+    private static final int FRAME_MILLIS = 16; // About 60 frames per second
+    private static final long FLIP_NANOS = 250_000_000L;
+    private static final long STAGGER_NANOS = 60_000_000L; // Between neighbouring tiles of a row
+    private static final int MARGIN = 10;
+    private static final int BOARD_GAP = 8;
+
+    private final int boards;
+    private final int rows;
+    private final int columns;
+    private final int boardRows;
+    private final int boardColumns;
+    private final char[] symbols;    // [(board * rows + row) * columns + column]
+    private final byte[] states;     // Feedback state per tile, BLANK while empty
+    private final long[] flipStarts; // System.nanoTime() at which a tile starts turning, STILL when flat
+    private final int[] flipping;    // Tiles whose flip has not ended yet
+    private int flippingCount;
+    private final boolean[] solved;
+    private final Timer timer = new Timer(FRAME_MILLIS, this);
+    private final Rectangle clip = new Rectangle();
+    private boolean animated = true;
+    private Runnable afterFirstPaint;
+
+    // Geometry for the current size
+    private int layoutWidth = -1;
+    private int layoutHeight = -1;
+    private int cell;
+    private int tile;
+    private int boardWidth;
+    private int boardHeight;
+    private int originX;
+    private int originY;
+    private Font font;
+    private FontMetrics metrics;
+
+    public BoardGrid(int boards, int rows, int columns) {
+        this.boards = boards;
+        this.rows = rows;
+        this.columns = columns;
+        this.boardRows = boards <= 4 ? 1 : boards <= 8 ? 2 : 4;
+        this.boardColumns = (boards + boardRows - 1) / boardRows;
+        int tiles = boards * rows * columns;
+        symbols = new char[tiles];
+        states = new byte[tiles];
+        flipStarts = new long[tiles];
+        flipping = new int[tiles];
+        solved = new boolean[boards];
+        setOpaque(true);
+        setBackground(UIManager.getColor("Panel.background"));
+        clear();
+    }
+
+    /**
+     * Switches the flip of newly scored rows on or off; without it a row shows its colours at
+     * once.
+     */
+    public void setAnimated(boolean animated) {
+        this.animated = animated;
+    }
+
+    /**
+     * Runs {@code action} on the event dispatch thread once the grid has been painted for the
+     * first time.
+     */
+    public void afterFirstPaint(Runnable action) {
+        afterFirstPaint = action;
+    }
+
+    /**
+     * Empties every cell of every board.
+     */
+    public void clear() {
+        Arrays.fill(states, BLANK);
+        Arrays.fill(flipStarts, STILL);
+        Arrays.fill(solved, false);
+        flippingCount = 0;
+        timer.stop();
+        repaint();
+    }
+
+    /**
+     * Fills the row of {@code result}'s attempt on {@code board}, and frames the board once the
+     * guess solved it.
+     */
+    public void show(int board, GuessResult result) {
+        int start = (board * rows + result.getAttempt() - 1) * columns; // 每行一个算式
+        long now = System.nanoTime();
+        for (int i = 0; i < result.length(); i++) {
+            int index = start + i;
+            symbols[index] = result.getGuess().charAt(i);
+            states[index] = (byte) result.getState(i);
+            if (!animated) {
+                if (flipStarts[index] != STILL) {
+                    flipStarts[index] = now - FLIP_NANOS; // Flat, and dropped by the next frame
+                }
+                repaintTile(index);
+                continue;
+            }
+            if (flipStarts[index] == STILL) {
+                flipping[flippingCount++] = index;
+            }
+            flipStarts[index] = now + i * STAGGER_NANOS;
+        }
+        if (result.isCorrect() && boards > 1) {
+            solved[board] = true;
+            repaint(boardX(board) - 3, boardY(board) - 3, boardWidth + 6, boardHeight + 6);
+        }
+        if (flippingCount > 0 && !timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Advances the flips by one frame: repaints every tile that is turning and forgets the ones
+     * that have finished.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        long now = System.nanoTime();
+        int kept = 0;
+        for (int i = 0; i < flippingCount; i++) {
+            int index = flipping[i];
+            long elapsed = now - flipStarts[index];
+            if (elapsed < 0) {
+                flipping[kept++] = index; // Waiting for its neighbours, nothing to draw yet
+                continue;
+            }
+            if (elapsed < FLIP_NANOS) {
+                flipping[kept++] = index;
+            } else {
+                flipStarts[index] = STILL; // Drawn flat from the next paint on
+            }
+            repaintTile(index);
+        }
+        flippingCount = kept;
+        if (kept == 0) {
+            timer.stop();
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        int preferredCell = boards == 1 ? 56 : boards <= 8 ? 30 : 16;
+        return new Dimension(2 * MARGIN + boardColumns * columns * preferredCell + (boardColumns - 1) * BOARD_GAP,
+                2 * MARGIN + boardRows * rows * preferredCell + (boardRows - 1) * BOARD_GAP);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        layoutTiles();
+        clip.setBounds(0, 0, getWidth(), getHeight());
+        g.getClipBounds(clip);
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        g.setFont(font);
+        long now = System.nanoTime();
+        for (int board = 0; board < boards; board++) {
+            int x = boardX(board);
+            int y = boardY(board);
+            if (x - 3 >= clip.x + clip.width || x + boardWidth + 3 <= clip.x
+                    || y - 3 >= clip.y + clip.height || y + boardHeight + 3 <= clip.y) {
+                continue;
+            }
+            if (solved[board]) {
+                g.setColor(SOLVED_BORDER);
+                g.fillRect(x - 3, y - 3, boardWidth + 6, boardHeight + 6);
+                g.setColor(getBackground());
+                g.fillRect(x - 1, y - 1, boardWidth + 2, boardHeight + 2);
+            }
+            // Only the rows and columns that meet the clip
+            int firstRow = Math.max(0, (clip.y - y) / cell);
+            int lastRow = Math.min(rows - 1, (clip.y + clip.height - y) / cell);
+            int firstColumn = Math.max(0, (clip.x - x) / cell);
+            int lastColumn = Math.min(columns - 1, (clip.x + clip.width - x) / cell);
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    paintTile(g, (board * rows + row) * columns + column, x + column * cell, y + row * cell, now);
+                }
+            }
+        }
+        if (afterFirstPaint != null) {
+            SwingUtilities.invokeLater(afterFirstPaint); // After the rest of this paint
+            afterFirstPaint = null;
+        }
+    }
+
+    /**
+     * Paints one tile: flat, or squeezed to the current height of its flip, showing the empty
+     * face for the first half of the flip and the scored face for the second.
+     */
+    private void paintTile(Graphics g, int index, int x, int y, long now) {
+        byte state = states[index];
+        int height = tile;
+        long elapsed = flipStarts[index] == STILL ? FLIP_NANOS : now - flipStarts[index];
+        if (elapsed < FLIP_NANOS) {
+            double progress = Math.max(0, elapsed) / (double) FLIP_NANOS;
+            height = (int) Math.round(tile * Math.abs(Math.cos(progress * Math.PI)));
+            if (progress < 0.5) {
+                state = BLANK;
+            }
+        }
+        int top = y + (tile - height) / 2;
+        g.setColor(state == BLANK ? EMPTY : colorOf(state));
+        g.fillRect(x, top, tile, height);
+        g.setColor(OUTLINE);
+        g.drawRect(x, top, tile - 1, Math.max(0, height - 1));
+        if (state != BLANK && height == tile) {
+            char symbol = symbols[index];
+            g.setColor(Color.BLACK);
+            g.drawChars(symbols, index, 1, x + (tile - metrics.charWidth(symbol)) / 2,
+                    y + (tile - metrics.getHeight()) / 2 + metrics.getAscent());
+        }
+    }
+
+    private void repaintTile(int index) {
+        if (layoutWidth < 0) {
+            return; // Never painted, so the first paint shows it
+        }
+        int board = index / (rows * columns);
+        int row = index / columns % rows;
+        int column = index % columns;
+        repaint(boardX(board) + column * cell, boardY(board) + row * cell, tile, tile);
+    }
+
+    private int boardX(int board) {
+        return originX + board % boardColumns * (boardWidth + BOARD_GAP);
+    }
+
+    private int boardY(int board) {
+        return originY + board / boardColumns * (boardHeight + BOARD_GAP);
+    }
+
+    /**
+     * Fits the boards into the current size, with square tiles as large as possible.
+     */
+    private void layoutTiles() {
+        if (getWidth() == layoutWidth && getHeight() == layoutHeight) {
+            return;
+        }
+        layoutWidth = getWidth();
+        layoutHeight = getHeight();
+        int availableWidth = layoutWidth - 2 * MARGIN - (boardColumns - 1) * BOARD_GAP;
+        int availableHeight = layoutHeight - 2 * MARGIN - (boardRows - 1) * BOARD_GAP;
+        cell = Math.max(4, Math.min(availableWidth / (boardColumns * columns), availableHeight / (boardRows * rows)));
+        int gap = boards == 1 ? 2 : 1;
+        tile = cell - gap;
+        boardWidth = columns * cell - gap;
+        boardHeight = rows * cell - gap;
+        originX = (layoutWidth - boardColumns * boardWidth - (boardColumns - 1) * BOARD_GAP) / 2;
+        originY = (layoutHeight - boardRows * boardHeight - (boardRows - 1) * BOARD_GAP) / 2;
+        font = new Font("Arial", Font.BOLD, Math.max(6, tile * 3 / 5));
+        metrics = getFontMetrics(font);
+    }
+
+    static Color colorOf(int state) {
+        if (state == Feedback.CORRECT) return Color.GREEN;
+        if (state == Feedback.MISPLACED) return Color.ORANGE;
+        return Color.GRAY;
+    }
+}
@@ -1,17 +1,97 @@
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
 public class CLIApp {
     private static NumberleController controller;
     private static Scanner scanner = new Scanner(System.in);
 
-    public static void main(String[] args) {
-        controller = new NumberleController(new NumberleModel());
+    private static final String SIMULATE_USAGE = "Usage: --simulate [games] [--strategy random|solver|tree=FILE|script=FILE]"
+            + " [--threads N] [--length L] [--metrics] [--journal DIR] [--closed] [--adversarial] [--hard]"
+            + " [--difficulty easy|normal|hard] [--seed N]";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--simulate")) {
+            simulate(args); // Headless mode: play many games and print statistics only
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--replay")) {
+            System.out.println(new JournalReader(Paths.get(args[1])).replay());
+            return;
+        }
+        List<String> options = Arrays.asList(args);
+        boolean machine = options.contains("--machine"); // Bots: see MachineProtocol
+        if (machine) {
+            System.setOut(System.err); // Stdout only carries protocol responses
+        }
+        MetricsEndpoint endpoint = MetricsEndpoint.startIfConfigured();
+        GameJournal journal = GameJournal.openIfConfigured();
+        try {
+            NumberleModel model = new NumberleModel();
+            // --closed only accepts equations from the dictionary
+            model.setDictionaryClosed(options.contains("--closed"));
+            // --adversarial decides the target as late as possible
+            model.setAdversarial(options.contains("--adversarial"));
+            // --hard makes every guess respect the hints so far
+            model.setHardMode(options.contains("--hard"));
+            // --difficulty easy|normal|hard draws targets from a band of the difficulty index
+            model.setDifficulty(difficulty(options));
+            if (journal != null) {
+                journal.attach(model); // Record every game of this session
+            }
+            controller = new NumberleController(model);
+            if (machine) {
+                model.setTrackingCandidates(false); // The protocol never reports candidates
+                new MachineProtocol(controller, new FileInputStream(FileDescriptor.in).getChannel(),
+                        new FileOutputStream(FileDescriptor.out).getChannel()).serve();
+                return;
+            }
+            if (options.contains("--startup-check")) {
+                controller.startNewGame(); // Ready for the first guess, see StartupTimer
+                StartupTimer.reportAndExit("CLI");
+            }
+            System.out.println("Welcome to Numberle!");
+            do {
+                playGame();
+            } while (restartGameOption()); // Provide an option to restart the game
+            System.out.println("Thank you for playing Numberle!");
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+            if (endpoint != null) {
+                endpoint.stop(); // Its server thread would otherwise keep the JVM alive
+            }
+        }
+    }
+
+    private static void playGame() {
         controller.startNewGame(); // Start a new game
-        System.out.println("Welcome to Numberle!");
-        System.out.println("Target equation: " + controller.getTargetEquation());
+        if (controller.getTargetEquation() != null) { // Adversarial games have none yet
+            System.out.println("Target equation: " + controller.getTargetEquation());
+        }
         while (!controller.isGameOver()) {
             System.out.println("Enter your guess (Remaining attempts: " + controller.getRemainingAttempts() + "):");
             String input = scanner.nextLine();
+            GuessResult previous = controller.getLastResult();
             boolean correct = controller.processInput(input); // Process input and obtain the result
+            GuessResult result = controller.getLastResult();
+            if (result != null && result != previous) {
+                if (!correct) {
+                    System.out.println(controller.getInputMessage());
+                }
+                System.out.println("Feedback:");
+                System.out.println(result.describe()); // Render the packed feedback as text
+                System.out.println("Possible equations left: " + controller.getCandidateCount()
+                        + " " + controller.getCandidateSample(5));
+            } else {
+                System.out.println(controller.getInputMessage()); // Explain why the guess was not scored
+            }
 
             if (correct) {
                 if (controller.isGameWon()) {
@@ -28,16 +108,100 @@ public class CLIApp {
                 break; // If the game ends without a win, display the correct equation
             }
         }
-        restartGameOption(); // Provide an option to restart the game
     }
 
-    private static void restartGameOption() {
+    private static DifficultyIndex.Band difficulty(List<String> options) {
+        int option = options.indexOf("--difficulty");
+        if (option < 0 || option + 1 >= options.size()) {
+            return null;
+        }
+        return DifficultyIndex.Band.valueOf(options.get(option + 1).toUpperCase(Locale.ROOT));
+    }
+
+    private static boolean restartGameOption() {
         System.out.println("Do you want to play again? (yes/no)");
         String decision = scanner.nextLine();
-        if (decision.equalsIgnoreCase("yes")) {
-            main(new String[0]); // Restart the game
-        } else {
-            System.out.println("Thank you for playing Numberle!");
+        return decision.equalsIgnoreCase("yes");
+    }
+
+    /**
+     * Plays many games headlessly and prints their statistics; see {@link #SIMULATE_USAGE} for the
+     * arguments.
+     */
+    private static void simulate(String[] args) throws IOException {
+        long games = 100_000;
+        String strategy = "random";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int length = INumberleModel.DEFAULT_EQUATION_LENGTH;
+        boolean metrics = false;
+        String journal = null;
+        boolean closed = false;
+        boolean adversarial = false;
+        boolean hard = false;
+        DifficultyIndex.Band difficulty = null;
+        Long seed = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--strategy":
+                    strategy = args[++i];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--length":
+                    length = Integer.parseInt(args[++i]);
+                    break;
+                case "--metrics":
+                    metrics = true;
+                    break;
+                case "--journal":
+                    journal = args[++i];
+                    break;
+                case "--closed":
+                    closed = true;
+                    break;
+                case "--adversarial":
+                    adversarial = true;
+                    break;
+                case "--hard":
+                    hard = true;
+                    break;
+                case "--difficulty":
+                    difficulty = DifficultyIndex.Band.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    if (!args[i].matches("[0-9][0-9_]*")) {
+                        System.out.println("Unknown option: " + args[i]);
+                        System.out.println(SIMULATE_USAGE);
+                        return;
+                    }
+                    games = Long.parseLong(args[i].replace("_", ""));
+            }
+        }
+        System.out.println("Simulating " + games + " games of length " + length + " with strategy "
+                + strategy + " on " + threads + " threads...");
+        GameSimulator simulator = new GameSimulator(EquationDictionary.forLength(length),
+                GameSimulator.strategy(strategy), threads);
+        if (metrics) {
+            simulator.setMetrics(GameMetrics.shared());
+        }
+        simulator.setDictionaryClosed(closed);
+        simulator.setAdversarial(adversarial);
+        simulator.setHardMode(hard);
+        simulator.setDifficulty(difficulty);
+        simulator.setSeed(seed);
+        GameJournal gameJournal = journal == null ? null : new GameJournal(Paths.get(journal));
+        simulator.setJournal(gameJournal);
+        simulator.run(games).print(System.out);
+        if (gameJournal != null) {
+            gameJournal.close(); // Waits until every game is on disk
+            System.out.println("Journal records: " + gameJournal.getRecordCount());
+        }
+        if (metrics) {
+            System.out.print(GameMetrics.shared().snapshot().toText());
         }
     }
 }
@@ -0,0 +1,196 @@
+// CandidateFilter.java
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Narrows a bitset of dictionary indices to the equations consistent with a scored guess.
+ * <p>
+ * For a fixed-width dictionary the filter precomputes two families of bitmasks over entry
+ * indices: one per (position, symbol) marking entries with that symbol at that position, and
+ * one per (symbol, k) marking entries that contain the symbol at least k times. A scored guess
+ * then reduces to a short list of these masks: a correct position keeps its (position, symbol)
+ * mask, any other state removes it, every symbol shown correct or misplaced g times keeps the
+ * "at least g" mask, and a symbol that was also reported absent removes the "at least g + 1"
+ * mask. All masks are applied in a single pass over the candidate words, stopping early on words
+ * that are already empty, so narrowing costs one sequential scan of {@code size / 64} longs per
+ * guess regardless of how many masks apply.
+ * <p>
+ * Masks that would be empty are not stored. Filters are immutable and shared per dictionary.
+ */
+public final class CandidateFilter {
+    private static final int SYMBOLS = Feedback.ALPHABET.length();
+    private static final Map<String, CandidateFilter> SHARED = new HashMap<>();
+
+    private final EquationDictionary dictionary;
+    private final int size;
+    private final int length;
+    private final int words;
+    private final long[][] positionMasks; // [position * SYMBOLS + symbol]
+    private final long[][] countMasks;    // [symbol * (length + 1) + k], entries with at least k occurrences
+
+    private CandidateFilter(EquationDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.size = dictionary.size();
+        this.length = dictionary.getEquationLength();
+        if (length == 0) {
+            throw new IllegalArgumentException("Candidate filtering needs a fixed-width dictionary");
+        }
+        this.words = (size + 63) >>> 6;
+        this.positionMasks = new long[length * SYMBOLS][];
+        this.countMasks = new long[SYMBOLS * (length + 1)][];
+        int[] occurrences = new int[SYMBOLS];
+        for (int entry = 0; entry < size; entry++) {
+            long bit = 1L << entry;
+            int word = entry >>> 6;
+            for (int position = 0; position < length; position++) {
+                int symbol = Feedback.symbolOf(dictionary.charAt(entry, position));
+                mask(positionMasks, position * SYMBOLS + symbol)[word] |= bit;
+                occurrences[symbol]++;
+            }
+            for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+                for (int k = 1; k <= occurrences[symbol]; k++) {
+                    mask(countMasks, symbol * (length + 1) + k)[word] |= bit;
+                }
+                occurrences[symbol] = 0;
+            }
+        }
+    }
+
+    public static synchronized CandidateFilter forDictionary(EquationDictionary dictionary) {
+        return SHARED.computeIfAbsent(dictionary.contentHash(), hash -> new CandidateFilter(dictionary));
+    }
+
+    /**
+     * Returns a new candidate set containing every dictionary entry.
+     */
+    public long[] all() {
+        long[] set = new long[words];
+        reset(set);
+        return set;
+    }
+
+    /**
+     * Marks every dictionary entry as a candidate again.
+     */
+    public void reset(long[] set) {
+        Arrays.fill(set, -1L);
+        if ((size & 63) != 0) {
+            set[words - 1] = -1L >>> (64 - (size & 63));
+        }
+    }
+
+    /**
+     * Removes from {@code set} every entry that would not have produced {@code code} for
+     * {@code guess}.
+     *
+     * @return the number of candidates left
+     */
+    public int apply(long[] set, CharSequence guess, int code) {
+        long[][] masks = new long[3 * length][];
+        boolean[] inverted = new boolean[masks.length];
+        int count = 0;
+        int[] shown = new int[SYMBOLS];
+        int absentSymbols = 0;
+        for (int position = 0; position < length; position++) {
+            int symbol = Feedback.symbolOf(guess.charAt(position));
+            int state = Feedback.state(code, position);
+            if (symbol < 0) {
+                if (state != Feedback.ABSENT) {
+                    return clear(set); // no dictionary entry contains this character
+                }
+                continue;
+            }
+            long[] mask = positionMasks[position * SYMBOLS + symbol];
+            if (state == Feedback.CORRECT) {
+                if (mask == null) return clear(set);
+                masks[count] = mask;
+                inverted[count++] = false;
+            } else if (mask != null) {
+                masks[count] = mask;
+                inverted[count++] = true;
+            }
+            if (state == Feedback.ABSENT) {
+                absentSymbols |= 1 << symbol;
+            } else {
+                shown[symbol]++;
+            }
+        }
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            int times = shown[symbol];
+            if (times > 0) {
+                long[] mask = countMasks[symbol * (length + 1) + times];
+                if (mask == null) return clear(set);
+                masks[count] = mask;
+                inverted[count++] = false;
+            }
+            if ((absentSymbols & 1 << symbol) != 0 && times < length) {
+                long[] mask = countMasks[symbol * (length + 1) + times + 1];
+                if (mask != null) {
+                    masks[count] = mask;
+                    inverted[count++] = true;
+                }
+            }
+        }
+        int remaining = 0;
+        for (int word = 0; word < words; word++) {
+            long bits = set[word];
+            for (int m = 0; m < count && bits != 0; m++) {
+                bits &= inverted[m] ? ~masks[m][word] : masks[m][word];
+            }
+            set[word] = bits;
+            remaining += Long.bitCount(bits);
+        }
+        return remaining;
+    }
+
+    public int count(long[] set) {
+        int count = 0;
+        for (long word : set) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the lowest dictionary index in {@code set}, or -1 if it is empty.
+     */
+    public int first(long[] set) {
+        for (int word = 0; word < words; word++) {
+            if (set[word] != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(set[word]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns up to {@code limit} candidate equations in dictionary order.
+     */
+    public List<String> sample(long[] set, int limit) {
+        List<String> sample = new ArrayList<>(Math.min(limit, 16));
+        for (int word = 0; word < words && sample.size() < limit; word++) {
+            long bits = set[word];
+            while (bits != 0 && sample.size() < limit) {
+                int entry = (word << 6) + Long.numberOfTrailingZeros(bits);
+                sample.add(dictionary.get(entry));
+                bits &= bits - 1;
+            }
+        }
+        return sample;
+    }
+
+    private int clear(long[] set) {
+        Arrays.fill(set, 0L);
+        return 0;
+    }
+
+    private long[] mask(long[][] masks, int index) {
+        if (masks[index] == null) {
+            masks[index] = new long[words];
+        }
+        return masks[index];
+    }
+}
@@ -0,0 +1,104 @@
+// CandidatePartitioner.java
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Splits a candidate set, a bitset of dictionary indices as kept by {@link CandidateFilter}, into
+ * classes by the feedback a guess would receive if each candidate were the target.
+ * <p>
+ * The dictionary is packed into one array once, so scoring a candidate is a call to
+ * {@link Feedback#score(byte[], int, byte[], int, int)} without touching the mapping. Small sets
+ * are scored on the calling thread; larger ones are cut into fork/join chunks of
+ * {@link #WORDS_PER_TASK} bitset words, each counting into its own histogram, and the histograms
+ * are summed as the tasks join. Partitioners are immutable and shared per dictionary.
+ */
+public final class CandidatePartitioner {
+    /** Bitset words per fork/join chunk, i.e. up to 64 times as many candidates. */
+    public static final int WORDS_PER_TASK = 64;
+
+    private static final Map<String, CandidatePartitioner> SHARED = new HashMap<>();
+
+    private final byte[] records;
+    private final int length;
+    private final int patterns;
+
+    private CandidatePartitioner(EquationDictionary dictionary) {
+        this.records = dictionary.toByteArray();
+        this.length = dictionary.getEquationLength();
+        this.patterns = Feedback.patternCount(length);
+    }
+
+    public static synchronized CandidatePartitioner forDictionary(EquationDictionary dictionary) {
+        return SHARED.computeIfAbsent(dictionary.contentHash(), hash -> new CandidatePartitioner(dictionary));
+    }
+
+    /**
+     * Returns the size of every class: element {@code code} counts the candidates for which
+     * {@code guess} would be scored {@code code}.
+     */
+    public int[] partition(long[] set, CharSequence guess, ForkJoinPool pool) {
+        byte[] bytes = guess.toString().getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length != length) {
+            throw new IllegalArgumentException("Guess of the wrong length: " + guess);
+        }
+        PartitionTask task = new PartitionTask(set, bytes, 0, set.length);
+        return set.length <= WORDS_PER_TASK ? task.compute() : pool.invoke(task);
+    }
+
+    /**
+     * Returns the feedback code whose class is largest, i.e. the answer that rules out the
+     * fewest candidates. Ties go to codes other than all-correct, so a guess only wins when it
+     * is the last candidate, and then to the smallest code.
+     */
+    public int largestClass(long[] set, CharSequence guess, ForkJoinPool pool) {
+        int[] counts = partition(set, guess, pool);
+        int win = Feedback.allCorrect(length);
+        int best = win;
+        for (int code = 0; code < patterns; code++) {
+            if (counts[code] > counts[best] || counts[code] == counts[best] && best == win && code != win) {
+                best = code;
+            }
+        }
+        return best;
+    }
+
+    private final class PartitionTask extends RecursiveTask<int[]> {
+        private final long[] set;
+        private final byte[] guess;
+        private final int from;
+        private final int to;
+
+        PartitionTask(long[] set, byte[] guess, int from, int to) {
+            this.set = set;
+            this.guess = guess;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from > WORDS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                PartitionTask left = new PartitionTask(set, guess, from, middle);
+                left.fork();
+                int[] counts = new PartitionTask(set, guess, middle, to).compute();
+                int[] other = left.join();
+                for (int code = 0; code < patterns; code++) {
+                    counts[code] += other[code];
+                }
+                return counts;
+            }
+            int[] counts = new int[patterns];
+            for (int word = from; word < to; word++) {
+                for (long bits = set[word]; bits != 0; bits &= bits - 1) {
+                    int candidate = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    counts[Feedback.score(guess, 0, records, candidate * length, length)]++;
+                }
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+// DecisionTree.java
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A solver's whole strategy for one dictionary, precomputed: the guess to play after every
+ * feedback sequence the game can produce. Built by {@link DecisionTreeBuilder} and played by
+ * {@link DecisionTreeSolver}.
+ * <p>
+ * The tree lives in a memory-mapped file and nothing is copied onto the heap. Nodes are runs of
+ * ints, starting with the root at position 0:
+ * <pre>
+ *   int guess       dictionary index of the equation to play
+ *   int candidates  dictionary equations still possible at this node
+ *   int children
+ *   children x (int code, int child)   feedback codes in ascending order, child node positions
+ * </pre>
+ * Codes that end the game, and codes no candidate can produce, have no child, so a leaf is a
+ * node whose guess is its only candidate. Finding the next node is a binary search over a
+ * handful of codes and one hop.
+ * <p>
+ * File layout: a header of magic, version, equation length, dictionary size, node ints, the
+ * total and worst number of guesses over all targets and the 64 character dictionary hash,
+ * followed by the nodes.
+ */
+public final class DecisionTree {
+    public static final int MAGIC = 0x4E4D4454; // "NMDT"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 96;
+    /** Ints before the children of a node. */
+    public static final int NODE_INTS = 3;
+
+    private static final int HASH_LENGTH = 64;
+
+    private final IntBuffer nodes;
+    private final int size;
+    private final long totalGuesses;
+    private final int maxGuesses;
+
+    private DecisionTree(IntBuffer nodes, int size, long totalGuesses, int maxGuesses) {
+        this.nodes = nodes;
+        this.size = size;
+        this.totalGuesses = totalGuesses;
+        this.maxGuesses = maxGuesses;
+    }
+
+    public static Path defaultFile(EquationDictionary dictionary) {
+        return Paths.get("tree-" + dictionary.contentHash().substring(0, 16) + ".tree");
+    }
+
+    /**
+     * Writes the header of a tree with {@code nodeInts} ints of nodes to {@code channel}.
+     */
+    static void writeHeader(FileChannel channel, EquationDictionary dictionary, int nodeInts,
+                            long totalGuesses, int maxGuesses) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort((short) VERSION).putShort((short) dictionary.getEquationLength())
+                .putInt(dictionary.size()).putInt(nodeInts).putLong(totalGuesses).putInt(maxGuesses)
+                .put(dictionary.contentHash().getBytes(StandardCharsets.US_ASCII));
+        header.clear();
+        channel.write(header, 0);
+    }
+
+    /**
+     * Maps an existing tree file, checking that it was built from {@code dictionary}.
+     */
+    public static DecisionTree open(Path file, EquationDictionary dictionary) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getShort() != VERSION) {
+                throw new IOException("Not a decision tree: " + file);
+            }
+            header.getShort(); // Equation length, implied by the hash
+            int size = header.getInt();
+            int nodeInts = header.getInt();
+            long totalGuesses = header.getLong();
+            int maxGuesses = header.getInt();
+            byte[] hash = new byte[HASH_LENGTH];
+            header.get(hash);
+            if (size != dictionary.size() || !new String(hash, StandardCharsets.US_ASCII).equals(dictionary.contentHash())) {
+                throw new IOException("Decision tree " + file + " was built from a different dictionary");
+            }
+            if (HEADER_SIZE + (long) nodeInts * Integer.BYTES > channel.size()) {
+                throw new IOException("Truncated decision tree: " + file);
+            }
+            IntBuffer nodes = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE,
+                    (long) nodeInts * Integer.BYTES).asIntBuffer();
+            return new DecisionTree(nodes, size, totalGuesses, maxGuesses);
+        }
+    }
+
+    public int root() {
+        return 0;
+    }
+
+    /**
+     * Returns the dictionary index of the equation to play at {@code node}.
+     */
+    public int guess(int node) {
+        return nodes.get(node);
+    }
+
+    public int candidates(int node) {
+        return nodes.get(node + 1);
+    }
+
+    /**
+     * Returns the node to continue from after the guess at {@code node} was scored
+     * {@code code}, or -1 if the tree has none because the game is over or no candidate
+     * produces that code.
+     */
+    public int child(int node, int code) {
+        int low = 0;
+        int high = nodes.get(node + 2) - 1;
+        int first = node + NODE_INTS;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int found = nodes.get(first + 2 * middle);
+            if (found < code) {
+                low = middle + 1;
+            } else if (found > code) {
+                high = middle - 1;
+            } else {
+                return nodes.get(first + 2 * middle + 1);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the size of the dictionary the tree was built from.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the mean number of guesses the tree takes to find a target, over every dictionary
+     * equation as the target.
+     */
+    public double getAverageGuesses() {
+        return size == 0 ? 0 : (double) totalGuesses / size;
+    }
+
+    /**
+     * Returns the most guesses the tree takes for any target.
+     */
+    public int getMaxGuesses() {
+        return maxGuesses;
+    }
+}
@@ -0,0 +1,503 @@
+// DecisionTreeBuilder.java
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the {@link DecisionTree} of the {@link EntropySolver}: the guess it plays after every
+ * feedback sequence, for every target in the dictionary.
+ * <p>
+ * After the opening guess the dictionary splits into one shard per feedback code, and each
+ * shard's subtree is built independently. Long equations make that too much work for one JVM,
+ * so the shards are spread over worker processes on this machine that coordinate through a work
+ * directory:
+ * <ul>
+ *   <li>{@code manifest}: the dictionary hash, the opening guess and every shard with its size,
+ *       largest first. Workers take shards in that order, so the long ones start early.</li>
+ *   <li>{@code shard-<code>.claim}: created atomically by the worker that takes a shard.</li>
+ *   <li>{@code shard-<code>.part}: the finished subtree, moved into place when complete.</li>
+ * </ul>
+ * Finished shards are checkpoints. A worker that dies has its unfinished claims released and is
+ * started again, up to {@value #MAX_RESTARTS} times, and a build that is stopped altogether
+ * resumes from the same work directory, skipping every shard that has a part. Once all parts
+ * exist they are merged under the opening node into one tree file.
+ * <p>
+ * Usage: {@code DecisionTreeBuilder [--length L] [--workers N] [--work DIR] [--output FILE]}.
+ * With {@code --workers 0} the shards are built in this process.
+ */
+public final class DecisionTreeBuilder {
+    private static final int MAX_RESTARTS = 3;
+    private static final int PART_MAGIC = 0x4E4D5450; // "NMTP"
+    private static final String MANIFEST = "manifest";
+
+    private final EquationDictionary dictionary;
+    private final Path workDirectory;
+    private final byte[] records;
+    private final int length;
+    private final int solved;
+
+    public DecisionTreeBuilder(EquationDictionary dictionary, Path workDirectory) {
+        if (dictionary.getEquationLength() == 0) {
+            throw new IllegalArgumentException("A decision tree needs a fixed-width dictionary");
+        }
+        this.dictionary = dictionary;
+        this.workDirectory = workDirectory;
+        this.records = dictionary.toByteArray();
+        this.length = dictionary.getEquationLength();
+        this.solved = Feedback.allCorrect(length);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 4 && args[0].equals("--worker")) {
+            // Started by build(): --worker DIR ID THREADS
+            Path directory = Paths.get(args[1]);
+            Manifest manifest = Manifest.read(directory.resolve(MANIFEST));
+            EquationDictionary dictionary = EquationDictionary.forLength(manifest.length);
+            new DecisionTreeBuilder(dictionary, directory).work(Integer.parseInt(args[2]),
+                    new ForkJoinPool(Integer.parseInt(args[3])));
+            return;
+        }
+        int length = INumberleModel.DEFAULT_EQUATION_LENGTH;
+        int workers = Runtime.getRuntime().availableProcessors();
+        String work = null;
+        String output = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--length":
+                    length = Integer.parseInt(args[++i]);
+                    break;
+                case "--workers":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                case "--work":
+                    work = args[++i];
+                    break;
+                case "--output":
+                    output = args[++i];
+                    break;
+                default:
+                    System.err.println("Usage: DecisionTreeBuilder [--length L] [--workers N] [--work DIR] [--output FILE]");
+                    System.exit(2);
+            }
+        }
+        EquationDictionary dictionary = EquationDictionary.forLength(length);
+        String hash = dictionary.contentHash().substring(0, 16);
+        Path directory = Paths.get(work != null ? work : "tree-work-" + hash);
+        Path file = output != null ? Paths.get(output) : DecisionTree.defaultFile(dictionary);
+        long start = System.nanoTime();
+        DecisionTree tree = new DecisionTreeBuilder(dictionary, directory).build(file, workers);
+        System.out.printf("Decision tree %s: average %.3f guesses, worst %d, built in %.1f s%n",
+                file, tree.getAverageGuesses(), tree.getMaxGuesses(), (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Builds the tree into {@code output} with {@code workers} worker processes, or in this
+     * process if {@code workers} is 0, resuming whatever the work directory already holds. The
+     * work directory is removed once the tree is complete.
+     */
+    public DecisionTree build(Path output, int workers) throws IOException, InterruptedException {
+        Files.createDirectories(workDirectory);
+        Manifest manifest = prepare();
+        feedbackMatrix(); // Workers share its cache file, so it must exist before any of them start
+        for (Shard shard : manifest.shards) {
+            // Nobody is working yet, so every claim without a part is left over from a stopped build
+            if (!Files.exists(part(shard))) {
+                Files.deleteIfExists(claim(shard));
+            }
+        }
+        if (workers == 0) {
+            work(0, ForkJoinPool.commonPool());
+        } else {
+            runWorkers(manifest, workers);
+        }
+        for (Shard shard : manifest.shards) {
+            if (!Files.exists(part(shard))) {
+                throw new IOException("Shard " + shard.code + " was not built; run again to resume from " + workDirectory);
+            }
+        }
+        merge(manifest, output);
+        for (Shard shard : manifest.shards) {
+            Files.delete(part(shard));
+        }
+        Files.delete(workDirectory.resolve(MANIFEST));
+        Files.delete(workDirectory);
+        return DecisionTree.open(output, dictionary);
+    }
+
+    /**
+     * Reads the manifest of an earlier run, or picks the opening guess and writes a new one.
+     */
+    private Manifest prepare() throws IOException {
+        Path file = workDirectory.resolve(MANIFEST);
+        if (Files.exists(file)) {
+            Manifest manifest = Manifest.read(file);
+            if (!manifest.hash.equals(dictionary.contentHash())) {
+                throw new IOException(workDirectory + " holds the work of a different dictionary");
+            }
+            return manifest;
+        }
+        int root = newSolver(ForkJoinPool.commonPool()).guessFor(range(dictionary.size()), dictionary.size());
+        int[] counts = new int[Feedback.patternCount(length)];
+        for (int target = 0; target < dictionary.size(); target++) {
+            counts[Feedback.score(records, root * length, records, target * length, length)]++;
+        }
+        List<Shard> shards = new ArrayList<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0 && code != solved) {
+                shards.add(new Shard(code, counts[code]));
+            }
+        }
+        shards.sort(Comparator.comparingInt((Shard shard) -> shard.targets).reversed());
+        Manifest manifest = new Manifest(length, dictionary.contentHash(), root, shards);
+        manifest.write(file);
+        return manifest;
+    }
+
+    private void runWorkers(Manifest manifest, int workers) throws IOException, InterruptedException {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / workers);
+        Process[] processes = new Process[workers];
+        int[] restarts = new int[workers];
+        for (int id = 0; id < workers; id++) {
+            processes[id] = launch(id, threads);
+        }
+        int running = workers;
+        while (running > 0) {
+            for (int id = 0; id < workers; id++) {
+                Process process = processes[id];
+                if (process == null || !process.waitFor(100, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                processes[id] = null;
+                running--;
+                if (process.exitValue() != 0 && restarts[id] < MAX_RESTARTS && release(manifest, id)) {
+                    System.err.println("Worker " + id + " exited with status " + process.exitValue() + ", restarting");
+                    restarts[id]++;
+                    processes[id] = launch(id, threads);
+                    running++;
+                }
+            }
+        }
+    }
+
+    private Process launch(int id, int threads) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                DecisionTreeBuilder.class.getName(), "--worker", workDirectory.toString(),
+                String.valueOf(id), String.valueOf(threads)).inheritIO().start();
+    }
+
+    /**
+     * Gives up the claims of worker {@code id} on shards it did not finish, and returns whether
+     * any shard is still unbuilt. Claims without an id yet are given up too: their worker may
+     * have died between creating and writing them, and at worst a shard is built twice.
+     */
+    private boolean release(Manifest manifest, int id) throws IOException {
+        boolean unbuilt = false;
+        for (Shard shard : manifest.shards) {
+            if (Files.exists(part(shard))) {
+                continue;
+            }
+            unbuilt = true;
+            Path claim = claim(shard);
+            try {
+                String owner = new String(Files.readAllBytes(claim), StandardCharsets.US_ASCII);
+                if (owner.isEmpty() || Integer.parseInt(owner) == id) {
+                    Files.deleteIfExists(claim);
+                }
+            } catch (IOException e) {
+                // Not claimed
+            }
+        }
+        return unbuilt;
+    }
+
+    /**
+     * Builds every shard that nobody else has taken, as worker {@code id}.
+     */
+    void work(int id, ForkJoinPool pool) throws IOException {
+        Manifest manifest = Manifest.read(workDirectory.resolve(MANIFEST));
+        if (!manifest.hash.equals(dictionary.contentHash())) {
+            throw new IOException(workDirectory + " holds the work of a different dictionary");
+        }
+        EntropySolver solver = newSolver(pool);
+        FeedbackMatrix matrix = feedbackMatrix();
+        for (Shard shard : manifest.shards) {
+            if (Files.exists(part(shard))) {
+                continue;
+            }
+            try {
+                Files.write(claim(shard), String.valueOf(id).getBytes(StandardCharsets.US_ASCII), StandardOpenOption.CREATE_NEW);
+            } catch (FileAlreadyExistsException e) {
+                continue; // Another worker has it
+            }
+            long start = System.nanoTime();
+            int[] targets = new int[shard.targets];
+            int count = 0;
+            for (int target = 0; target < dictionary.size(); target++) {
+                if (code(matrix, manifest.root, target) == shard.code) {
+                    targets[count++] = target;
+                }
+            }
+            Subtree subtree = new Subtree(solver, matrix);
+            subtree.build(targets, count, 2); // The opening guess was the first
+            writePart(shard, subtree);
+            Files.deleteIfExists(claim(shard));
+            // One write per line, so lines of different workers do not interleave
+            System.err.println(String.format("Worker %d: shard %d, %d targets, %d nodes in %.2f s", id, shard.code,
+                    count, subtree.nodes, (System.nanoTime() - start) / 1e9));
+        }
+    }
+
+    /**
+     * Puts the opening node in front of every shard's subtree, moving the subtrees' child
+     * positions to where they end up, and writes the tree file.
+     */
+    private void merge(Manifest manifest, Path output) throws IOException {
+        List<Shard> shards = new ArrayList<>(manifest.shards);
+        shards.sort(Comparator.comparingInt((Shard shard) -> shard.code));
+        int rootInts = DecisionTree.NODE_INTS + 2 * shards.size();
+        long totalGuesses = 1; // The opening guess itself, found at once
+        int maxGuesses = 1;
+        int[] root = new int[rootInts];
+        root[0] = manifest.root;
+        root[1] = dictionary.size();
+        root[2] = shards.size();
+        int position = rootInts;
+        int[][] parts = new int[shards.size()][];
+        for (int i = 0; i < shards.size(); i++) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(part(shards.get(i)))))) {
+                if (in.readInt() != PART_MAGIC || in.readLong() != dictionary.contentHashPrefix()
+                        || in.readInt() != shards.get(i).code) {
+                    throw new IOException("Bad part file " + part(shards.get(i)));
+                }
+                totalGuesses += in.readLong();
+                maxGuesses = Math.max(maxGuesses, in.readInt());
+                int[] nodes = new int[in.readInt()];
+                for (int j = 0; j < nodes.length; j++) {
+                    nodes[j] = in.readInt();
+                }
+                for (int node = 0; node < nodes.length; node += DecisionTree.NODE_INTS + 2 * nodes[node + 2]) {
+                    for (int child = 0; child < nodes[node + 2]; child++) {
+                        nodes[node + DecisionTree.NODE_INTS + 2 * child + 1] += position;
+                    }
+                }
+                root[DecisionTree.NODE_INTS + 2 * i] = shards.get(i).code;
+                root[DecisionTree.NODE_INTS + 2 * i + 1] = position;
+                parts[i] = nodes;
+                position += nodes.length;
+            }
+        }
+        Path temporary = output.resolveSibling(output.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DecisionTree.writeHeader(channel, dictionary, position, totalGuesses, maxGuesses);
+            channel.position(DecisionTree.HEADER_SIZE);
+            write(channel, root);
+            for (int[] nodes : parts) {
+                write(channel, nodes);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void write(FileChannel channel, int[] ints) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ints.length * Integer.BYTES);
+        buffer.asIntBuffer().put(ints);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void writePart(Shard shard, Subtree subtree) throws IOException {
+        Path file = part(shard);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(PART_MAGIC);
+            out.writeLong(dictionary.contentHashPrefix());
+            out.writeInt(shard.code);
+            out.writeLong(subtree.totalGuesses);
+            out.writeInt(subtree.maxGuesses);
+            out.writeInt(subtree.used);
+            for (int i = 0; i < subtree.used; i++) {
+                out.writeInt(subtree.ints[i]);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private EntropySolver newSolver(ForkJoinPool pool) throws IOException {
+        return new EntropySolver(dictionary, feedbackMatrix(), pool);
+    }
+
+    private FeedbackMatrix feedbackMatrix() throws IOException {
+        return dictionary.size() <= EntropySolver.MATRIX_LIMIT ? FeedbackMatrix.forDictionary(dictionary) : null;
+    }
+
+    private int code(FeedbackMatrix matrix, int guess, int target) {
+        return matrix != null ? matrix.get(guess, target)
+                : Feedback.score(records, guess * length, records, target * length, length);
+    }
+
+    private Path claim(Shard shard) {
+        return workDirectory.resolve("shard-" + shard.code + ".claim");
+    }
+
+    private Path part(Shard shard) {
+        return workDirectory.resolve("shard-" + shard.code + ".part");
+    }
+
+    private static int[] range(int size) {
+        int[] all = new int[size];
+        for (int i = 0; i < size; i++) {
+            all[i] = i;
+        }
+        return all;
+    }
+
+    /**
+     * The nodes of one shard, in the tree file's node format with positions relative to the
+     * shard's first node.
+     */
+    private final class Subtree {
+        private final EntropySolver solver;
+        private final FeedbackMatrix matrix;
+        private int[] ints = new int[1024];
+        private int used;
+        private int nodes;
+        private long totalGuesses; // Over the shard's targets, counting from its first node
+        private int maxGuesses;
+
+        Subtree(EntropySolver solver, FeedbackMatrix matrix) {
+            this.solver = solver;
+            this.matrix = matrix;
+        }
+
+        /**
+         * Adds the node that plays guess number {@code turn} when {@code set} holds the
+         * candidates, and the nodes below it, and returns its position.
+         */
+        int build(int[] set, int count, int turn) {
+            int guess = solver.guessFor(set, count);
+            // Group the candidates by the code they answer the guess with
+            long[] keyed = new long[count];
+            for (int i = 0; i < count; i++) {
+                keyed[i] = (long) code(matrix, guess, set[i]) << 32 | set[i];
+            }
+            Arrays.sort(keyed);
+            int children = 0;
+            for (int i = 0; i < count; i++) {
+                if ((i == 0 || keyed[i] >>> 32 != keyed[i - 1] >>> 32) && (int) (keyed[i] >>> 32) != solved) {
+                    children++;
+                }
+            }
+            int node = reserve(DecisionTree.NODE_INTS + 2 * children);
+            ints[node] = guess;
+            ints[node + 1] = count;
+            ints[node + 2] = children;
+            nodes++;
+            int child = 0;
+            for (int from = 0; from < count; ) {
+                int code = (int) (keyed[from] >>> 32);
+                int to = from;
+                while (to < count && (int) (keyed[to] >>> 32) == code) {
+                    to++;
+                }
+                if (code == solved) {
+                    totalGuesses += turn;
+                    maxGuesses = Math.max(maxGuesses, turn);
+                } else {
+                    if (to - from == count) {
+                        throw new IllegalStateException("Guess " + dictionary.get(guess) + " does not split its candidates");
+                    }
+                    ints[node + DecisionTree.NODE_INTS + 2 * child] = code;
+                    int[] group = new int[to - from];
+                    for (int i = from; i < to; i++) {
+                        group[i - from] = (int) keyed[i];
+                    }
+                    int position = build(group, group.length, turn + 1); // May grow ints, so before indexing it
+                    ints[node + DecisionTree.NODE_INTS + 2 * child + 1] = position;
+                    child++;
+                }
+                from = to;
+            }
+            return node;
+        }
+
+        private int reserve(int size) {
+            if (used + size > ints.length) {
+                ints = Arrays.copyOf(ints, Math.max(ints.length * 2, used + size));
+            }
+            int position = used;
+            used += size;
+            return position;
+        }
+    }
+
+    private static final class Shard {
+        final int code;
+        final int targets;
+
+        Shard(int code, int targets) {
+            this.code = code;
+            this.targets = targets;
+        }
+    }
+
+    private static final class Manifest {
+        final int length;
+        final String hash;
+        final int root;
+        final List<Shard> shards;
+
+        Manifest(int length, String hash, int root, List<Shard> shards) {
+            this.length = length;
+            this.hash = hash;
+            this.root = root;
+            this.shards = shards;
+        }
+
+        static Manifest read(Path file) throws IOException {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+            String[] head = lines.get(0).split(" ");
+            List<Shard> shards = new ArrayList<>();
+            for (String line : lines.subList(1, lines.size())) {
+                String[] fields = line.split(" ");
+                shards.add(new Shard(Integer.parseInt(fields[0]), Integer.parseInt(fields[1])));
+            }
+            return new Manifest(Integer.parseInt(head[0]), head[1], Integer.parseInt(head[2]), shards);
+        }
+
+        /**
+         * Writes the manifest as a line of length, hash and opening guess, then one line of
+         * code and size per shard. Workers only ever see a complete file.
+         */
+        void write(Path file) throws IOException {
+            List<String> lines = new ArrayList<>();
+            lines.add(length + " " + hash + " " + root);
+            for (Shard shard : shards) {
+                lines.add(shard.code + " " + shard.targets);
+            }
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temporary, lines, StandardCharsets.US_ASCII);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
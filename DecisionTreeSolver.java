@@ -0,0 +1,85 @@
+// DecisionTreeSolver.java
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Solver that plays a precomputed {@link DecisionTree}: every turn is a lookup of the node the
+ * last feedback leads to, with no search and no candidate bookkeeping.
+ * <p>
+ * Guesses the tree did not make itself, such as a player's own guesses, lead off the tree. The
+ * solver then hands over to a fallback solver, which is brought up to date with every result of
+ * the game so far, so the fallback costs nothing while the game stays on the tree.
+ */
+public class DecisionTreeSolver implements NumberleSolver {
+    private final DecisionTree tree;
+    private final EquationDictionary dictionary;
+    private final NumberleSolver fallback;
+    private final int solved;
+    private final List<GuessResult> history = new ArrayList<>();
+
+    private int node;     // -1 once off the tree
+    private boolean found;
+
+    public DecisionTreeSolver(DecisionTree tree, EquationDictionary dictionary, NumberleSolver fallback) {
+        if (tree.size() != dictionary.size()) {
+            throw new IllegalArgumentException("The tree was built from a different dictionary");
+        }
+        this.tree = tree;
+        this.dictionary = dictionary;
+        this.fallback = fallback;
+        this.solved = Feedback.allCorrect(dictionary.getEquationLength());
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        node = tree.root();
+        found = false;
+        history.clear();
+    }
+
+    @Override
+    public String nextGuess() {
+        if (node < 0) {
+            return fallback.nextGuess();
+        }
+        return dictionary.get(tree.guess(node));
+    }
+
+    @Override
+    public void observe(GuessResult result) {
+        if (node < 0) {
+            fallback.observe(result);
+            return;
+        }
+        history.add(result);
+        if (result.getCode() == solved) {
+            found = true;
+            return;
+        }
+        int next = dictionary.matches(tree.guess(node), result.getGuess()) ? tree.child(node, result.getCode()) : -1;
+        if (next < 0) {
+            fallback.reset();
+            for (GuessResult earlier : history) {
+                fallback.observe(earlier);
+            }
+            history.clear();
+        }
+        node = next;
+    }
+
+    @Override
+    public int getCandidateCount() {
+        if (found) {
+            return 1;
+        }
+        return node < 0 ? fallback.getCandidateCount() : tree.candidates(node);
+    }
+
+    /**
+     * Returns whether the game so far has stayed on the tree.
+     */
+    public boolean isOnTree() {
+        return node >= 0;
+    }
+}
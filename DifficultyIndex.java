@@ -0,0 +1,622 @@
+// DifficultyIndex.java
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * How hard every dictionary equation is as a target, and constant-time seeded sampling of
+ * targets by difficulty band.
+ * <p>
+ * An equation's difficulty is measured against the typical opening: the {@link EntropySolver}'s
+ * first guess, followed by the second guess that best splits the candidates that opening leaves.
+ * Equations are ranked by how many candidates are left after both guesses, then by how many the
+ * opening alone leaves. Each {@link Band} weights the equations by their place in that ranking,
+ * and samples from the weights with Vose's alias method, so drawing a target is two reads and a
+ * comparison however large the dictionary, and allocates nothing. A draw is a function of its
+ * seed alone: the same dictionary, band and seed always give the same target.
+ * <p>
+ * The index is computed once into a memory-mapped file named after the dictionary's content
+ * hash, e.g. {@code difficulty-0123456789abcdef.difficulty}, so dictionaries of the same length
+ * never share a file. It is meant to be built ahead of time with {@link #main}; the
+ * {@code fast-start} build ships the default dictionary's index in the jar, and games only build
+ * a missing index themselves as a last resort. A new dictionary's index starts from the newest
+ * index of another dictionary of the same length: it keeps that opening if it is still an entry,
+ * and takes the difficulties of every equation whose opening bucket has exactly the same members,
+ * so only the buckets the change touched are scored again. File layout: a header of magic, version, equation
+ * length, dictionary size, the opening's index and text and the 64 character dictionary hash,
+ * followed by per-entry arrays of equation hashes, opening codes, opening bucket sizes and
+ * difficulties, and by the threshold and alias arrays of every band.
+ */
+public final class DifficultyIndex {
+    public static final int MAGIC = 0x4E4D4449; // "NMDI"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 128;
+
+    /**
+     * Target difficulty bands. Each favours the equations around its point of the difficulty
+     * ranking, with weights falling off as a bell curve of the distance in rank, so every
+     * equation stays possible in every band.
+     */
+    public enum Band {
+        EASY(1 / 6.0), NORMAL(0.5), HARD(5 / 6.0);
+
+        private final double center;
+
+        Band(double center) {
+            this.center = center;
+        }
+
+        double weight(double percentile) {
+            double distance = (percentile - center) / BAND_WIDTH;
+            return Math.exp(-distance * distance / 2);
+        }
+    }
+
+    private static final double BAND_WIDTH = 0.2;
+    private static final int HASH_LENGTH = 64;
+    private static final int BUCKETS_PER_TASK = 16;
+    private static final long ONE = 1L << 31; // Alias thresholds are probabilities in units of 2^-31
+
+    private static final Map<String, DifficultyIndex> SHARED = new HashMap<>();
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int opener;
+    private final int hashes;
+    private final int codes;
+    private final int buckets;
+    private final int difficulties;
+    private final int tables; // Per band: size thresholds, then size aliases
+
+    private DifficultyIndex(ByteBuffer buffer, int size, int opener) {
+        this.buffer = buffer;
+        this.size = size;
+        this.opener = opener;
+        this.hashes = HEADER_SIZE;
+        this.codes = hashes + size * Long.BYTES;
+        this.buckets = codes + size * Integer.BYTES;
+        this.difficulties = buckets + size * Integer.BYTES;
+        this.tables = difficulties + size * Integer.BYTES;
+    }
+
+    /**
+     * Returns the index for {@code dictionary}: its file in the working directory, or else the
+     * copy on the classpath, built now only if there is neither. Indices are shared within the
+     * process.
+     */
+    public static synchronized DifficultyIndex forDictionary(EquationDictionary dictionary) throws IOException {
+        String hash = dictionary.contentHash();
+        DifficultyIndex index = SHARED.get(hash);
+        if (index == null) {
+            Path file = indexFile(dictionary);
+            index = Files.exists(file) ? open(file) : fromResource(file.getFileName().toString());
+            if (index == null || !index.hash().equals(hash)) {
+                Path directory = file.toAbsolutePath().getParent();
+                build(dictionary, file, newestIndex(directory, dictionary.getEquationLength()), ForkJoinPool.commonPool());
+                index = open(file);
+            }
+            SHARED.put(hash, index);
+        }
+        return index;
+    }
+
+    public static Path indexFile(EquationDictionary dictionary) {
+        return Paths.get("difficulty-" + dictionary.contentHash().substring(0, 16) + ".difficulty");
+    }
+
+    /**
+     * Builds the index of a binary dictionary ahead of time:
+     * {@code DifficultyIndex DICTIONARY [DIRECTORY]}. The file goes to {@code DIRECTORY}, the
+     * working directory by default, and starts from the newest index already there. The
+     * {@code fast-start} build profile runs this to put the index into the jar.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: DifficultyIndex DICTIONARY [DIRECTORY]");
+            System.exit(2);
+        }
+        EquationDictionary dictionary = EquationDictionary.open(Paths.get(args[0]));
+        Path directory = Paths.get(args.length > 1 ? args[1] : ".");
+        Path file = directory.resolve(indexFile(dictionary));
+        int rescored = build(dictionary, file, newestIndex(directory, dictionary.getEquationLength()),
+                ForkJoinPool.commonPool());
+        System.out.println("Wrote " + file + ", scored " + rescored + " opening buckets");
+    }
+
+    /**
+     * Maps an index file, whatever dictionary it was built from.
+     */
+    public static DifficultyIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Difficulty index too large to map: " + file);
+            }
+            return of(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+        }
+    }
+
+    /**
+     * Loads an index from the root of the classpath, or returns null if there is no resource of
+     * that name. A resource in a directory is mapped like any other file; one inside a jar is
+     * read onto the heap once.
+     */
+    public static DifficultyIndex fromResource(String name) throws IOException {
+        URL url = DifficultyIndex.class.getResource("/" + name);
+        if (url == null) {
+            return null;
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return open(Paths.get(url.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException("Bad difficulty index resource " + url, e);
+            }
+        }
+        try (InputStream in = url.openStream()) {
+            return of(ByteBuffer.wrap(in.readAllBytes()).asReadOnlyBuffer(), url);
+        }
+    }
+
+    private static DifficultyIndex of(ByteBuffer buffer, Object source) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Not a difficulty index: " + source);
+        }
+        DifficultyIndex index = new DifficultyIndex(buffer, buffer.getInt(8), buffer.getInt(12));
+        if (index.fileSize() != buffer.limit()) {
+            throw new IOException("Truncated difficulty index: " + source);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the most recently written index in {@code directory} for equations of
+     * {@code length}, or null if there is none. Unreadable files are skipped.
+     */
+    private static DifficultyIndex newestIndex(Path directory, int length) throws IOException {
+        Path newest = null;
+        DifficultyIndex index = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "difficulty-*.difficulty")) {
+            for (Path file : files) {
+                try {
+                    DifficultyIndex candidate = open(file);
+                    if (candidate.buffer.getShort(6) == length && (newest == null
+                            || Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(newest)) > 0)) {
+                        newest = file;
+                        index = candidate;
+                    }
+                } catch (IOException e) {
+                    // Not an index after all; the new one is built without it
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Scores every entry of {@code dictionary} and writes the index to {@code file}, taking
+     * whatever still applies from {@code previous}, which may be null. Returns the number of
+     * opening buckets that were scored rather than taken over.
+     */
+    public static int build(EquationDictionary dictionary, Path file, DifficultyIndex previous,
+                            ForkJoinPool pool) throws IOException {
+        int length = dictionary.getEquationLength();
+        if (length == 0) {
+            throw new IllegalArgumentException("A difficulty index needs a fixed-width dictionary");
+        }
+        int size = dictionary.size();
+        byte[] records = dictionary.toByteArray();
+        long[] hashes = new long[size];
+        for (int entry = 0; entry < size; entry++) {
+            hashes[entry] = hash(records, entry * length, length);
+        }
+        int opener = previous == null ? -1 : find(dictionary, previous.getOpenerText());
+        boolean sameOpener = opener >= 0;
+        if (!sameOpener) {
+            opener = new EntropySolver(dictionary, null, pool).guessFor(range(size), size);
+        }
+
+        // Group the entries by their feedback to the opener
+        long[] keyed = new long[size];
+        for (int entry = 0; entry < size; entry++) {
+            keyed[entry] = (long) Feedback.score(records, opener * length, records, entry * length, length) << 32 | entry;
+        }
+        Arrays.sort(keyed);
+        int[] members = new int[size];
+        int[] starts = new int[size + 1];
+        int bucketCount = 0;
+        for (int i = 0; i < size; i++) {
+            members[i] = (int) keyed[i];
+            if (i == 0 || keyed[i] >>> 32 != keyed[i - 1] >>> 32) {
+                starts[bucketCount++] = i;
+            }
+        }
+        starts[bucketCount] = size;
+        int[] codes = new int[size];
+        int[] bucketSizes = new int[size];
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            for (int i = starts[bucket]; i < starts[bucket + 1]; i++) {
+                codes[members[i]] = (int) (keyed[i] >>> 32);
+                bucketSizes[members[i]] = starts[bucket + 1] - starts[bucket];
+            }
+        }
+
+        int[] difficulties = new int[size];
+        boolean[] scored = new boolean[bucketCount];
+        Arrays.fill(scored, true);
+        if (sameOpener) {
+            previous.takeOver(hashes, codes, members, starts, bucketCount, difficulties, scored);
+        }
+        pool.invoke(new BucketTask(records, length, members, starts, scored, difficulties, 0, bucketCount));
+
+        // Rank by difficulty, then by the opener's bucket size; equal keys share their middle rank
+        long[] keys = new long[size];
+        for (int entry = 0; entry < size; entry++) {
+            keys[entry] = (long) difficulties[entry] << 32 | bucketSizes[entry];
+        }
+        long[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        double[] percentiles = new double[size];
+        for (int entry = 0; entry < size; entry++) {
+            int first = lowerBound(sorted, keys[entry]);
+            int last = lowerBound(sorted, keys[entry] + 1) - 1;
+            percentiles[entry] = size == 1 ? 0.5 : (first + last) / 2.0 / (size - 1);
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        DifficultyIndex layout = new DifficultyIndex(null, size, opener);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, layout.fileSize());
+            buffer.putInt(MAGIC).putShort((short) VERSION).putShort((short) length).putInt(size).putInt(opener);
+            buffer.put(dictionary.get(opener).getBytes(StandardCharsets.US_ASCII));
+            buffer.position(HEADER_SIZE - HASH_LENGTH);
+            buffer.put(dictionary.contentHash().getBytes(StandardCharsets.US_ASCII));
+            for (int entry = 0; entry < size; entry++) {
+                buffer.putLong(layout.hashes + entry * Long.BYTES, hashes[entry]);
+                buffer.putInt(layout.codes + entry * Integer.BYTES, codes[entry]);
+                buffer.putInt(layout.buckets + entry * Integer.BYTES, bucketSizes[entry]);
+                buffer.putInt(layout.difficulties + entry * Integer.BYTES, difficulties[entry]);
+            }
+            double[] weights = new double[size];
+            for (Band band : Band.values()) {
+                for (int entry = 0; entry < size; entry++) {
+                    weights[entry] = band.weight(percentiles[entry]);
+                }
+                writeAliasTable(buffer, layout.tables + band.ordinal() * 2 * size * Integer.BYTES, size, weights);
+            }
+            buffer.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        int rescored = 0;
+        for (boolean bucket : scored) {
+            rescored += bucket ? 1 : 0;
+        }
+        return rescored;
+    }
+
+    /**
+     * Returns the dictionary index of a target drawn from {@code band} by {@code seed}.
+     */
+    public int sample(Band band, long seed) {
+        long bits = mix(seed);
+        int column = (int) ((bits >>> 32) * size >>> 32);
+        int table = tables + band.ordinal() * 2 * size * Integer.BYTES;
+        if (((int) bits & 0x7FFFFFFF) < buffer.getInt(table + column * Integer.BYTES)) {
+            return column;
+        }
+        return buffer.getInt(table + (size + column) * Integer.BYTES);
+    }
+
+    /**
+     * Returns an index below {@code size} drawn uniformly by {@code seed}.
+     */
+    public static int sampleUniform(int size, long seed) {
+        return (int) ((mix(seed) >>> 32) * size >>> 32);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the dictionary index of the opening guess the difficulties are measured against.
+     */
+    public int getOpener() {
+        return opener;
+    }
+
+    /**
+     * Returns how many candidates the opening guess leaves when {@code entry} is the target.
+     */
+    public int candidatesAfterOpener(int entry) {
+        return buffer.getInt(buckets + checked(entry) * Integer.BYTES);
+    }
+
+    /**
+     * Returns how many candidates are left when {@code entry} is the target and the opening guess
+     * and the best second guess have been played, or 0 if one of them was the target.
+     */
+    public int difficultyOf(int entry) {
+        return buffer.getInt(difficulties + checked(entry) * Integer.BYTES);
+    }
+
+    private String getOpenerText() {
+        byte[] text = new byte[HEADER_SIZE - HASH_LENGTH - 16];
+        buffer.duplicate().position(16).get(text);
+        int end = 0;
+        while (end < text.length && text[end] != 0) {
+            end++;
+        }
+        return new String(text, 0, end, StandardCharsets.US_ASCII);
+    }
+
+    private String hash() {
+        byte[] hash = new byte[HASH_LENGTH];
+        buffer.duplicate().position(HEADER_SIZE - HASH_LENGTH).get(hash);
+        return new String(hash, StandardCharsets.US_ASCII);
+    }
+
+    private int fileSize() {
+        return tables + Band.values().length * 2 * size * Integer.BYTES;
+    }
+
+    private int checked(int entry) {
+        if (entry < 0 || entry >= size) {
+            throw new IndexOutOfBoundsException("Entry " + entry + " out of range 0.." + (size - 1));
+        }
+        return entry;
+    }
+
+    /**
+     * Copies the difficulties of the new dictionary's buckets whose members are exactly those of
+     * this index's bucket for the same code, and marks those buckets as not needing scoring.
+     */
+    private void takeOver(long[] hashes, int[] codes, int[] members, int[] starts, int bucketCount,
+                          int[] difficulties, boolean[] scored) {
+        // Buckets are compared by a sum of mixed member hashes, which does not depend on order
+        Map<Integer, long[]> old = new HashMap<>(); // code -> fingerprint, size
+        for (int entry = 0; entry < size; entry++) {
+            long[] bucket = old.computeIfAbsent(buffer.getInt(this.codes + entry * Integer.BYTES), code -> new long[2]);
+            bucket[0] += mix(buffer.getLong(this.hashes + entry * Long.BYTES));
+            bucket[1]++;
+        }
+        Map<Long, Integer> kept = null;
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            long fingerprint = 0;
+            for (int i = starts[bucket]; i < starts[bucket + 1]; i++) {
+                fingerprint += mix(hashes[members[i]]);
+            }
+            long[] match = old.get(codes[members[starts[bucket]]]);
+            if (match == null || match[0] != fingerprint || match[1] != starts[bucket + 1] - starts[bucket]) {
+                continue;
+            }
+            if (kept == null) {
+                kept = new HashMap<>(size * 2);
+                for (int entry = 0; entry < size; entry++) {
+                    kept.put(buffer.getLong(this.hashes + entry * Long.BYTES),
+                            buffer.getInt(this.difficulties + entry * Integer.BYTES));
+                }
+            }
+            for (int i = starts[bucket]; i < starts[bucket + 1]; i++) {
+                difficulties[members[i]] = kept.get(hashes[members[i]]);
+            }
+            scored[bucket] = false;
+        }
+    }
+
+    /**
+     * Writes Vose's alias table for {@code weights}: a column is drawn uniformly, and then either
+     * the column itself, with its threshold as probability, or its alias.
+     */
+    private static void writeAliasTable(ByteBuffer buffer, int offset, int size, double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        long[] scaled = new long[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = Math.round(weights[i] / total * size * ONE);
+            if (scaled[i] < ONE) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            buffer.putInt(offset + less * Integer.BYTES, (int) scaled[less]);
+            buffer.putInt(offset + (size + less) * Integer.BYTES, more);
+            scaled[more] -= ONE - scaled[less];
+            if (scaled[more] < ONE) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // What is left is full up to rounding, and is its own alias
+        while (largeCount > 0) {
+            int full = large[--largeCount];
+            buffer.putInt(offset + full * Integer.BYTES, Integer.MAX_VALUE);
+            buffer.putInt(offset + (size + full) * Integer.BYTES, full);
+        }
+        while (smallCount > 0) {
+            int full = small[--smallCount];
+            buffer.putInt(offset + full * Integer.BYTES, Integer.MAX_VALUE);
+            buffer.putInt(offset + (size + full) * Integer.BYTES, full);
+        }
+    }
+
+    /**
+     * Scores the buckets of one range: picks the member that best splits its bucket as the second
+     * guess, and records for every member how many candidates that guess leaves.
+     */
+    private static final class BucketTask extends RecursiveAction {
+        private final byte[] records;
+        private final int length;
+        private final int[] members;
+        private final int[] starts;
+        private final boolean[] scored;
+        private final int[] difficulties;
+        private final int from;
+        private final int to;
+
+        BucketTask(byte[] records, int length, int[] members, int[] starts, boolean[] scored,
+                   int[] difficulties, int from, int to) {
+            this.records = records;
+            this.length = length;
+            this.members = members;
+            this.starts = starts;
+            this.scored = scored;
+            this.difficulties = difficulties;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BUCKETS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BucketTask(records, length, members, starts, scored, difficulties, from, middle),
+                        new BucketTask(records, length, members, starts, scored, difficulties, middle, to));
+                return;
+            }
+            for (int bucket = from; bucket < to; bucket++) {
+                if (scored[bucket]) {
+                    score(starts[bucket], starts[bucket + 1]);
+                }
+            }
+        }
+
+        private void score(int start, int end) {
+            int count = end - start;
+            int[] codes = new int[count];
+            int best = -1;
+            double bestScore = Double.MAX_VALUE;
+            for (int guess = start; guess < end; guess++) {
+                double score = split(members[guess], start, end, codes);
+                if (score < bestScore) {
+                    bestScore = score;
+                    best = members[guess];
+                }
+            }
+            split(best, start, end, codes);
+            int[] sorted = codes.clone();
+            Arrays.sort(sorted);
+            for (int i = 0; i < count; i++) {
+                int member = members[start + i];
+                difficulties[member] = member == best ? 0 : upperBound(sorted, codes[i]) - lowerBound(sorted, codes[i]);
+            }
+        }
+
+        /**
+         * Scores the bucket's members against {@code guess} into {@code codes} and returns
+         * {@code sum(count * log(count))} over the resulting groups, as the solver does.
+         */
+        private double split(int guess, int start, int end, int[] codes) {
+            for (int i = start; i < end; i++) {
+                codes[i - start] = Feedback.score(records, guess * length, records, members[i] * length, length);
+            }
+            int[] sorted = codes.clone();
+            Arrays.sort(sorted);
+            double score = 0;
+            for (int i = 0, run = 1; i < sorted.length; i++, run++) {
+                if (i == sorted.length - 1 || sorted[i + 1] != sorted[i]) {
+                    score += run * Math.log(run);
+                    run = 0;
+                }
+            }
+            return score;
+        }
+    }
+
+    private static int lowerBound(long[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(int[] sorted, int key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int upperBound(int[] sorted, int key) {
+        return lowerBound(sorted, key + 1);
+    }
+
+    private static int find(EquationDictionary dictionary, String equation) {
+        for (int entry = 0; entry < dictionary.size(); entry++) {
+            if (dictionary.matches(entry, equation)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] range(int size) {
+        int[] all = new int[size];
+        for (int i = 0; i < size; i++) {
+            all[i] = i;
+        }
+        return all;
+    }
+
+    /**
+     * FNV-1a over the bytes of one equation.
+     */
+    private static long hash(byte[] records, int offset, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ records[offset + i]) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * The SplitMix64 finalizer: turns consecutive seeds into unrelated, well-spread bits.
+     */
+    static long mix(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,237 @@
+// EntropySolver.java
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Solver that plays the dictionary equation whose feedback splits the remaining candidates most
+ * evenly, i.e. the guess with the highest expected information.
+ * <p>
+ * For every possible guess the candidates are bucketed by feedback code and the guess with the
+ * smallest {@code sum(count * log(count))} wins; ties go to guesses that could still be the
+ * answer. Guesses are evaluated in parallel fork/join chunks, each with a per-thread bucket array
+ * that is reused across chunks and turns. Codes come from a {@link FeedbackMatrix} when one is
+ * available and are computed on the fly otherwise.
+ * <p>
+ * Only one equation of every {@link EquationClasses equivalence class} is tried as a guess:
+ * reordering commutative operands rarely changes how well a guess splits the candidates, and on
+ * the default dictionary this drops two guesses in five from every search. Candidates are still
+ * tracked entry by entry. Where the work limit below applies, the saving goes into sampling more
+ * candidates per guess rather than into a shorter turn.
+ * <p>
+ * The opening guess only depends on the dictionary, so it is computed once per dictionary and
+ * shared by every solver in the process. When a turn would need more than {@link #WORK_LIMIT}
+ * scorings, as on the first turns of long-equation dictionaries, each guess is judged against an
+ * evenly spaced sample of the candidates instead of all of them.
+ */
+public class EntropySolver implements NumberleSolver {
+    /** Largest dictionary for which a full feedback matrix is built. */
+    public static final int MATRIX_LIMIT = 16384;
+    /** Upper bound on guess/candidate scorings per turn before sampling kicks in. */
+    public static final long WORK_LIMIT = 16L << 20;
+
+    private static final int GUESSES_PER_TASK = 64;
+    private static final Map<String, Integer> OPENERS = new ConcurrentHashMap<>();
+
+    private final EquationDictionary dictionary;
+    private final FeedbackMatrix matrix;
+    private final ForkJoinPool pool;
+    private final byte[] records;
+    private final int[] guesses; // One representative per equivalence class
+    private final int length;
+    private final int patterns;
+    private final ThreadLocal<int[][]> buckets;
+
+    private int[] candidates;
+    private int candidateCount;
+    private long[] candidateMask;
+    private int lastGuess = -1;
+
+    public EntropySolver(EquationDictionary dictionary, FeedbackMatrix matrix, ForkJoinPool pool) {
+        this.dictionary = dictionary;
+        this.matrix = matrix;
+        this.pool = pool;
+        this.records = dictionary.toByteArray();
+        this.guesses = EquationClasses.forDictionary(dictionary).representatives();
+        this.length = dictionary.getEquationLength();
+        this.patterns = Feedback.patternCount(length);
+        this.buckets = ThreadLocal.withInitial(() -> new int[][]{new int[patterns], new int[patterns]});
+        reset();
+    }
+
+    /**
+     * Creates a solver for the shared dictionary of the given length, with a feedback matrix
+     * if the dictionary is small enough for one.
+     */
+    public static EntropySolver forLength(int length) throws IOException {
+        EquationDictionary dictionary = EquationDictionary.forLength(length);
+        FeedbackMatrix matrix = dictionary.size() <= MATRIX_LIMIT ? FeedbackMatrix.forDictionary(dictionary) : null;
+        return new EntropySolver(dictionary, matrix, ForkJoinPool.commonPool());
+    }
+
+    @Override
+    public void reset() {
+        int size = dictionary.size();
+        if (candidates == null) {
+            candidates = new int[size];
+            candidateMask = new long[(size + 63) >>> 6];
+        }
+        for (int i = 0; i < size; i++) {
+            candidates[i] = i;
+        }
+        candidateCount = size;
+        Arrays.fill(candidateMask, -1L);
+        lastGuess = -1;
+    }
+
+    @Override
+    public String nextGuess() {
+        if (candidateCount == 0) {
+            throw new IllegalStateException("No equation is consistent with the feedback so far");
+        }
+        lastGuess = choose();
+        return dictionary.get(lastGuess);
+    }
+
+    /**
+     * Makes the first {@code count} entries of {@code set} the candidates, as if the feedback so
+     * far had narrowed the dictionary down to exactly them, and returns the dictionary index of
+     * the guess {@link #nextGuess()} would then play. Used to explore every branch of the game
+     * up front, see {@link DecisionTreeBuilder}.
+     */
+    int guessFor(int[] set, int count) {
+        if (count == 0) {
+            throw new IllegalArgumentException("No candidates to guess from");
+        }
+        System.arraycopy(set, 0, candidates, 0, count);
+        candidateCount = count;
+        Arrays.fill(candidateMask, 0);
+        for (int i = 0; i < count; i++) {
+            candidateMask[set[i] >>> 6] |= 1L << set[i];
+        }
+        lastGuess = -1;
+        return choose();
+    }
+
+    private int choose() {
+        if (candidateCount <= 2) {
+            return candidates[0];
+        }
+        if (candidateCount == dictionary.size()) {
+            // Searched outside the map, so no bin lock is held for the length of a parallel search
+            String hash = dictionary.contentHash();
+            Integer opener = OPENERS.get(hash);
+            if (opener == null) {
+                Integer searched = search();
+                opener = OPENERS.putIfAbsent(hash, searched);
+                return opener != null ? opener : searched;
+            }
+            return opener;
+        }
+        return search();
+    }
+
+    @Override
+    public void observe(GuessResult result) {
+        int code = result.getCode();
+        String guess = result.getGuess();
+        boolean indexed = matrix != null && lastGuess >= 0 && dictionary.get(lastGuess).equals(guess);
+        byte[] guessBytes = guess.getBytes(StandardCharsets.US_ASCII);
+        int kept = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            int candidate = candidates[i];
+            int actual = indexed ? matrix.get(lastGuess, candidate)
+                    : Feedback.score(guessBytes, 0, records, candidate * length, length);
+            if (actual == code) {
+                candidates[kept++] = candidate;
+            } else {
+                candidateMask[candidate >>> 6] &= ~(1L << candidate);
+            }
+        }
+        candidateCount = kept;
+        lastGuess = -1;
+    }
+
+    @Override
+    public int getCandidateCount() {
+        return candidateCount;
+    }
+
+    /**
+     * Evaluates every guess of the pool and returns the best one.
+     */
+    private int search() {
+        int stride = 1;
+        long work = (long) guesses.length * candidateCount;
+        if (work > WORK_LIMIT) {
+            stride = (int) ((work + WORK_LIMIT - 1) / WORK_LIMIT);
+        }
+        long best = pool.invoke(new SearchTask(0, guesses.length, stride));
+        return (int) best;
+    }
+
+    /**
+     * Packs a score into a long that orders like the score and then prefers candidates and
+     * lower indices, so the best guess is simply the smallest value.
+     */
+    private long rank(int guess, double score) {
+        long fixed = Math.round(score * 1024);
+        boolean candidate = (candidateMask[guess >>> 6] & 1L << guess) != 0;
+        return fixed << 33 | (candidate ? 0L : 1L << 32) | guess;
+    }
+
+    private double score(int guess, int stride, int[] counts, int[] touched) {
+        int distinct = 0;
+        int guessOffset = guess * length;
+        for (int i = 0; i < candidateCount; i += stride) {
+            int candidate = candidates[i];
+            int code = matrix != null ? matrix.get(guess, candidate)
+                    : Feedback.score(records, guessOffset, records, candidate * length, length);
+            if (counts[code]++ == 0) {
+                touched[distinct++] = code;
+            }
+        }
+        double score = 0;
+        for (int i = 0; i < distinct; i++) {
+            int code = touched[i];
+            int count = counts[code];
+            score += count * Math.log(count);
+            counts[code] = 0;
+        }
+        return score;
+    }
+
+    private final class SearchTask extends RecursiveTask<Long> {
+        private final int from;
+        private final int to;
+        private final int stride;
+
+        SearchTask(int from, int to, int stride) {
+            this.from = from;
+            this.to = to;
+            this.stride = stride;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > GUESSES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                SearchTask left = new SearchTask(from, middle, stride);
+                left.fork();
+                long right = new SearchTask(middle, to, stride).compute();
+                return Math.min(left.join(), right);
+            }
+            int[][] scratch = buckets.get();
+            long best = Long.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                int guess = guesses[i];
+                best = Math.min(best, rank(guess, score(guess, stride, scratch[0], scratch[1])));
+            }
+            return best;
+        }
+    }
+}
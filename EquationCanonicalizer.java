@@ -0,0 +1,124 @@
+// EquationCanonicalizer.java
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Rewrites an equation into a canonical order, so that equations that only differ by the order
+ * of commutative operands share one form.
+ * <p>
+ * Each side is compiled with an {@link EquationEvaluator} and split into its terms. Within a term
+ * the multiplied factors are sorted, followed by the sorted divisors; within a side the added
+ * terms are sorted, followed by the sorted subtracted ones; finally the two sides are put in
+ * order around the '='. {@code 3+2=5*1} and {@code 1*5=2+3} both become {@code 1*5=2+3}, while
+ * {@code 6/2=3} and {@code 2/6=3} stay apart. Numbers are compared as written, so leading zeros
+ * are kept. The canonical form is a key, not necessarily a true equation of the same value.
+ * <p>
+ * Instances reuse one evaluator and are not thread-safe.
+ */
+public final class EquationCanonicalizer {
+    // Shorter numbers first, then by digits: numeric order for numbers without leading zeros
+    private static final Comparator<String> NUMBERS = Comparator.comparingInt(String::length)
+            .thenComparing(Comparator.naturalOrder());
+
+    private final EquationEvaluator evaluator = new EquationEvaluator();
+    private final List<String> factors = new ArrayList<>();
+    private final List<String> divisors = new ArrayList<>();
+    private final List<String> added = new ArrayList<>();
+    private final List<String> subtracted = new ArrayList<>();
+
+    /**
+     * Returns the canonical form of {@code equation}, or null if it does not have exactly one
+     * '=' with a well-formed expression on each side.
+     */
+    public String canonicalize(CharSequence equation) {
+        int equals = -1;
+        for (int i = 0; i < equation.length(); i++) {
+            if (equation.charAt(i) == '=') {
+                if (equals >= 0) return null;
+                equals = i;
+            }
+        }
+        if (equals < 0) {
+            return null;
+        }
+        String left = canonicalize(equation, 0, equals);
+        String right = canonicalize(equation, equals + 1, equation.length());
+        if (left == null || right == null) {
+            return null;
+        }
+        return left.compareTo(right) <= 0 ? left + '=' + right : right + '=' + left;
+    }
+
+    /**
+     * Returns the canonical form of the expression {@code equation[from, to)}, or null if it is
+     * malformed.
+     */
+    private String canonicalize(CharSequence equation, int from, int to) {
+        if (evaluator.compile(equation, from, to) != EquationEvaluator.OK) {
+            return null;
+        }
+        added.clear();
+        subtracted.clear();
+        boolean subtract = equation.charAt(from) == '-';
+        int position = equation.charAt(from) == '-' || equation.charAt(from) == '+' ? from + 1 : from;
+        int count = evaluator.getOperandCount();
+        for (int operand = 0; operand < count; ) {
+            factors.clear();
+            divisors.clear();
+            // Numbers are taken as written; the compiled operators say how they combine
+            int end = endOfNumber(equation, position, to);
+            factors.add(equation.subSequence(position, end).toString());
+            position = end + 1;
+            while (operand < count - 1 && isMultiplicative(evaluator.getOperator(operand))) {
+                end = endOfNumber(equation, position, to);
+                String number = equation.subSequence(position, end).toString();
+                (evaluator.getOperator(operand) == '*' ? factors : divisors).add(number);
+                position = end + 1;
+                operand++;
+            }
+            (subtract ? subtracted : added).add(term());
+            if (operand < count - 1) {
+                subtract = evaluator.getOperator(operand) == '-';
+            }
+            operand++;
+        }
+        added.sort(null);
+        subtracted.sort(null);
+        StringBuilder side = new StringBuilder(to - from);
+        for (String term : added) {
+            if (side.length() > 0) side.append('+');
+            side.append(term);
+        }
+        for (String term : subtracted) {
+            side.append('-').append(term);
+        }
+        return side.toString();
+    }
+
+    private String term() {
+        factors.sort(NUMBERS);
+        divisors.sort(NUMBERS);
+        StringBuilder term = new StringBuilder();
+        for (String factor : factors) {
+            if (term.length() > 0) term.append('*');
+            term.append(factor);
+        }
+        for (String divisor : divisors) {
+            term.append('/').append(divisor);
+        }
+        return term.toString();
+    }
+
+    private static int endOfNumber(CharSequence equation, int from, int to) {
+        int i = from;
+        while (i < to && equation.charAt(i) >= '0' && equation.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isMultiplicative(char operator) {
+        return operator == '*' || operator == '/';
+    }
+}
@@ -0,0 +1,137 @@
+// EquationClasses.java
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Partition of a dictionary into equivalence classes of equations that are the same up to the
+ * order of commutative operands, as decided by {@link EquationCanonicalizer}.
+ * <p>
+ * Classes get compact ids in the order of their first entry, and that entry is the class's
+ * representative. Members are kept in one array sorted by class, so a class is a slice of it.
+ * Consumers that only need one equation of each shape, such as the solver's guess pool, work on
+ * the representatives; the entries themselves keep their exact strings for scoring. Entries are
+ * canonicalized in parallel fork/join chunks, and classes are shared per dictionary.
+ */
+public final class EquationClasses {
+    private static final int ENTRIES_PER_TASK = 4096;
+
+    private static final Map<String, EquationClasses> SHARED = new ConcurrentHashMap<>();
+
+    private final int[] classOf;         // entry -> class id
+    private final int[] representatives; // class id -> first entry
+    private final int[] offsets;         // class id -> start of its slice of members
+    private final int[] members;         // entries grouped by class, in dictionary order within a class
+
+    private EquationClasses(EquationDictionary dictionary, ForkJoinPool pool) {
+        int size = dictionary.size();
+        String[] canonical = new String[size];
+        pool.invoke(new CanonicalizeTask(dictionary, canonical, 0, size));
+        classOf = new int[size];
+        Map<String, Integer> ids = new HashMap<>();
+        int[] firsts = new int[size];
+        for (int entry = 0; entry < size; entry++) {
+            // Entries that do not parse, if any, form classes of their own
+            String key = canonical[entry] != null ? canonical[entry] : "#" + entry;
+            Integer id = ids.putIfAbsent(key, ids.size());
+            if (id == null) {
+                id = ids.size() - 1;
+                firsts[id] = entry;
+            }
+            classOf[entry] = id;
+        }
+        int classes = ids.size();
+        representatives = Arrays.copyOf(firsts, classes);
+        offsets = new int[classes + 1];
+        for (int id : classOf) {
+            offsets[id + 1]++;
+        }
+        for (int id = 0; id < classes; id++) {
+            offsets[id + 1] += offsets[id];
+        }
+        members = new int[size];
+        int[] next = Arrays.copyOf(offsets, classes);
+        for (int entry = 0; entry < size; entry++) {
+            members[next[classOf[entry]]++] = entry;
+        }
+    }
+
+    public static EquationClasses forDictionary(EquationDictionary dictionary) {
+        // Built outside the map, so no lock is held for the length of a fork/join build
+        String hash = dictionary.contentHash();
+        EquationClasses classes = SHARED.get(hash);
+        if (classes == null) {
+            EquationClasses built = new EquationClasses(dictionary, ForkJoinPool.commonPool());
+            classes = SHARED.putIfAbsent(hash, built);
+            return classes != null ? classes : built;
+        }
+        return classes;
+    }
+
+    public int getClassCount() {
+        return representatives.length;
+    }
+
+    /**
+     * Returns the class id of dictionary entry {@code index}.
+     */
+    public int classOf(int index) {
+        return classOf[index];
+    }
+
+    /**
+     * Returns the dictionary index of the first entry of class {@code id}.
+     */
+    public int representative(int id) {
+        return representatives[id];
+    }
+
+    /**
+     * Returns the dictionary index of every class representative, in class id order.
+     */
+    public int[] representatives() {
+        return representatives.clone();
+    }
+
+    public int sizeOf(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * Returns the dictionary indices of the entries of class {@code id}, in dictionary order.
+     */
+    public int[] members(int id) {
+        return Arrays.copyOfRange(members, offsets[id], offsets[id + 1]);
+    }
+
+    private static final class CanonicalizeTask extends RecursiveAction {
+        private final EquationDictionary dictionary;
+        private final String[] canonical;
+        private final int from;
+        private final int to;
+
+        CanonicalizeTask(EquationDictionary dictionary, String[] canonical, int from, int to) {
+            this.dictionary = dictionary;
+            this.canonical = canonical;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ENTRIES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CanonicalizeTask(dictionary, canonical, from, middle),
+                        new CanonicalizeTask(dictionary, canonical, middle, to));
+                return;
+            }
+            EquationCanonicalizer canonicalizer = new EquationCanonicalizer();
+            for (int entry = from; entry < to; entry++) {
+                canonical[entry] = canonicalizer.canonicalize(dictionary.get(entry));
+            }
+        }
+    }
+}
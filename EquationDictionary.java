@@ -0,0 +1,374 @@
+// EquationDictionary.java
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only equation dictionary backed by a memory-mapped binary file.
+ * <p>
+ * The file starts with a fixed header:
+ * <pre>
+ *   int   magic          'NMBD'
+ *   short version
+ *   short equation length (0 when entries have different lengths)
+ *   int   entry count
+ *   int   reserved
+ *   long  index offset   (0 for fixed-width files)
+ * </pre>
+ * When every entry has the same length the data section is a plain array of fixed-width ASCII
+ * records, so entry {@code i} lives at {@code HEADER_SIZE + i * length}. Otherwise each record is
+ * a length byte followed by its characters, and an index of {@code count} int offsets at the end
+ * of the file locates them. Either way a lookup is a couple of reads from the mapping and
+ * nothing is copied onto the heap.
+ * <p>
+ * Dictionaries opened through {@link #forLength(int)} are mapped once per process and shared by
+ * every game. Builds with the {@code fast-start} profile also ship the default dictionary
+ * precompiled in the jar, so the game starts without any files in the working directory.
+ * <p>
+ * The whole file is one mapping addressed with {@code int} offsets, so a dictionary is limited to
+ * {@link #MAX_SIZE} bytes, about 178 million equations of twelve characters, and
+ * {@link #compile} refuses anything larger. Nothing downstream could take more: entries are
+ * {@code int} indices everywhere and bulk scorers copy all records into one array.
+ * <p>
+ * Reads only use absolute positions, so one instance can be used from any number of threads.
+ */
+public final class EquationDictionary {
+    public static final int MAGIC = 0x4E4D4244; // "NMBD"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 24;
+    /** Largest dictionary file in bytes, the most a single mapping can hold. */
+    public static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    private static final Map<Integer, EquationDictionary> SHARED = new HashMap<>();
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int equationLength;
+    private final int indexOffset;
+    private volatile String contentHash;
+
+    private EquationDictionary(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an equation dictionary");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Unsupported dictionary version " + buffer.getShort(4));
+        }
+        this.buffer = buffer;
+        this.equationLength = buffer.getShort(6);
+        this.count = buffer.getInt(8);
+        this.indexOffset = (int) buffer.getLong(16);
+    }
+
+    /**
+     * Returns the shared dictionary for equations of the given length. Files in the working
+     * directory come first: the binary file, compiled from the text dictionary when it is
+     * missing or older than the text. Without either file, the precompiled copy on the classpath
+     * is used, and only if there is none is the text dictionary generated.
+     */
+    public static synchronized EquationDictionary forLength(int length) throws IOException {
+        EquationDictionary dictionary = SHARED.get(length);
+        if (dictionary == null) {
+            Path text = Paths.get(EquationGenerator.dictionaryFileName(length));
+            Path binary = Paths.get(binaryFileName(length));
+            boolean local = Files.exists(text) || Files.exists(binary);
+            dictionary = local ? null : fromResource(binaryFileName(length));
+            if (dictionary == null) {
+                if (!local) {
+                    System.out.println("Generating equations of length " + length + "...");
+                    new EquationGenerator(length).generate(text);
+                }
+                if (!Files.exists(binary) || (Files.exists(text)
+                        && Files.getLastModifiedTime(text).compareTo(Files.getLastModifiedTime(binary)) > 0)) {
+                    compile(text, binary);
+                }
+                dictionary = open(binary);
+            }
+            SHARED.put(length, dictionary);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Loads a binary dictionary from the root of the classpath, or returns null if there is no
+     * resource of that name. A resource in a directory is mapped like any other file; one inside
+     * a jar is read onto the heap once.
+     */
+    public static EquationDictionary fromResource(String name) throws IOException {
+        return fromResource(name, EquationDictionary.class.getClassLoader());
+    }
+
+    static EquationDictionary fromResource(String name, ClassLoader loader) throws IOException {
+        URL url = loader.getResource(name);
+        if (url == null) {
+            return null;
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return open(Paths.get(url.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException("Bad dictionary resource " + url, e);
+            }
+        }
+        try (InputStream in = url.openStream()) {
+            return new EquationDictionary(ByteBuffer.wrap(in.readAllBytes()).asReadOnlyBuffer());
+        }
+    }
+
+    public static String binaryFileName(int length) {
+        return EquationGenerator.dictionaryFileName(length).replace(".txt", ".dict");
+    }
+
+    /**
+     * Maps an existing binary dictionary.
+     */
+    public static EquationDictionary open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_SIZE) {
+                throw new IOException("Dictionary too large to map: " + file + " has " + channel.size()
+                        + " bytes, at most " + MAX_SIZE + " are supported");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new EquationDictionary(buffer);
+        }
+    }
+
+    /**
+     * Compiles a text dictionary: {@code EquationDictionary TEXT BINARY}. The {@code fast-start}
+     * build profile runs this to put the precompiled dictionary into the jar.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: EquationDictionary TEXT BINARY");
+            System.exit(2);
+        }
+        compile(Paths.get(args[0]), Paths.get(args[1]));
+    }
+
+    /**
+     * Converts a text dictionary with one equation per line into the binary format. Blank lines
+     * are skipped. The file is written next to its final location and moved into place, so
+     * readers never observe a partial dictionary.
+     *
+     * @throws IOException if the binary file would be larger than {@link #MAX_SIZE}
+     */
+    public static void compile(Path text, Path binary) throws IOException {
+        compile(text, binary, MAX_SIZE);
+    }
+
+    static void compile(Path text, Path binary, long maxSize) throws IOException {
+        int count = 0;
+        int width = -1;
+        long characters = 0;
+        try (BufferedReader reader = Files.newBufferedReader(text, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (line.length() > Byte.MAX_VALUE) {
+                    throw new IOException("Equation too long: " + line);
+                }
+                width = width == -1 || width == line.length() ? line.length() : 0;
+                characters += line.length();
+                count++;
+                if (HEADER_SIZE + characters > maxSize) {
+                    throw tooLarge(text, maxSize); // Before the count can overflow
+                }
+            }
+        }
+        boolean fixed = width > 0;
+        // Variable-width records add a length byte and an index entry each
+        if (HEADER_SIZE + characters + (fixed ? 0 : (1L + Integer.BYTES) * count) > maxSize) {
+            throw tooLarge(text, maxSize);
+        }
+        int[] offsets = fixed ? null : new int[count];
+        Path temporary = binary.resolveSibling(binary.getFileName() + ".tmp");
+        try (BufferedReader reader = Files.newBufferedReader(text, StandardCharsets.US_ASCII);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(fixed ? width : 0);
+            out.writeInt(count);
+            out.writeInt(0);
+            out.writeLong(0); // index offset, patched below for variable-width files
+            String line;
+            int i = 0;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (!fixed) {
+                    offsets[i++] = out.size();
+                    out.writeByte(line.length());
+                }
+                out.writeBytes(line);
+            }
+            if (!fixed) {
+                int indexOffset = out.size();
+                for (int offset : offsets) {
+                    out.writeInt(offset);
+                }
+                out.flush();
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                    ByteBuffer patch = ByteBuffer.allocate(Long.BYTES).putLong(0, indexOffset);
+                    channel.write(patch, 16);
+                }
+            }
+        }
+        Files.move(temporary, binary, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static IOException tooLarge(Path text, long maxSize) {
+        return new IOException("Dictionary " + text + " does not fit in " + maxSize
+                + " bytes, the most one mapping can hold; split it by equation length");
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the common length of all entries, or 0 if entries have different lengths.
+     */
+    public int getEquationLength() {
+        return equationLength;
+    }
+
+    public int lengthOf(int index) {
+        return equationLength > 0 ? equationLength : buffer.get(recordOffset(index));
+    }
+
+    /**
+     * Returns the character at {@code position} of entry {@code index}.
+     */
+    public char charAt(int index, int position) {
+        return (char) buffer.get(dataOffset(index) + position);
+    }
+
+    /**
+     * Copies entry {@code index} into {@code destination} without allocating.
+     *
+     * @return the number of bytes copied
+     */
+    public int copyTo(int index, byte[] destination, int offset) {
+        int length = lengthOf(index);
+        int start = dataOffset(index);
+        for (int i = 0; i < length; i++) {
+            destination[offset + i] = buffer.get(start + i);
+        }
+        return length;
+    }
+
+    /**
+     * Returns whether entry {@code index} is exactly {@code equation}, comparing in place.
+     */
+    public boolean matches(int index, CharSequence equation) {
+        int length = lengthOf(index);
+        if (length != equation.length()) {
+            return false;
+        }
+        int start = dataOffset(index);
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(start + i) != equation.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scores {@code guess} against entry {@code index}, reading the entry in place from the
+     * mapping, so a guess made of equation symbols is scored without allocating.
+     */
+    public int score(CharSequence guess, int index) {
+        int length = lengthOf(index);
+        if (guess.length() != length || length > Feedback.MAX_LENGTH) {
+            throw new IllegalArgumentException("Cannot score \"" + guess + "\" against entry " + index);
+        }
+        for (int i = 0; i < length; i++) {
+            if (Feedback.symbolOf(guess.charAt(i)) < 0) {
+                return Feedback.score(guess, get(index)); // Rare, so the slow path may allocate
+            }
+        }
+        return Feedback.score(guess, buffer, dataOffset(index));
+    }
+
+    public String get(int index) {
+        byte[] bytes = new byte[lengthOf(index)];
+        copyTo(index, bytes, 0);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Copies every entry of a fixed-width dictionary into one array of back-to-back records.
+     * Bulk scorers use this to avoid going through the mapping for every character.
+     */
+    public byte[] toByteArray() {
+        if (equationLength == 0) {
+            throw new IllegalStateException("Only fixed-width dictionaries can be packed");
+        }
+        byte[] records = new byte[count * equationLength];
+        ByteBuffer data = buffer.duplicate();
+        data.position(HEADER_SIZE);
+        data.get(records);
+        return records;
+    }
+
+    /**
+     * Returns a hex SHA-256 digest of the file contents, used to key caches derived from this
+     * dictionary.
+     */
+    public String contentHash() {
+        String hash = contentHash;
+        if (hash == null) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(buffer.duplicate().clear());
+                StringBuilder hex = new StringBuilder();
+                for (byte b : digest.digest()) {
+                    // Not String.format, whose first use costs more than hashing the whole file
+                    hex.append(Character.forDigit(b >>> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+                }
+                hash = contentHash = hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the first 64 bits of {@link #contentHash()}, for binary formats that record which
+     * dictionary they refer to.
+     */
+    public long contentHashPrefix() {
+        return Long.parseUnsignedLong(contentHash().substring(0, 16), 16);
+    }
+
+    private int recordOffset(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Equation index " + index + " out of range 0.." + (count - 1));
+        }
+        return equationLength > 0 ? HEADER_SIZE + index * equationLength : buffer.getInt(indexOffset + index * Integer.BYTES);
+    }
+
+    private int dataOffset(int index) {
+        return equationLength > 0 ? recordOffset(index) : recordOffset(index) + 1;
+    }
+}
@@ -0,0 +1,231 @@
+// EquationEvaluator.java
+import java.util.Arrays;
+
+/**
+ * Allocation-free evaluator for Numberle expressions and equations.
+ * <p>
+ * An expression is first compiled into two parallel primitive arrays, the operands and the
+ * operators between them, and the compiled form is then evaluated with the usual precedence:
+ * '*' and '/' bind tighter than '+' and '-', and operators of equal precedence associate to the
+ * left. The arrays are reused from call to call, so once they have grown to the longest
+ * expression seen no further allocation takes place.
+ * <p>
+ * Failures are reported as status codes rather than exceptions. Besides malformed input and
+ * division by zero, the evaluator reports divisions that leave a remainder and any intermediate
+ * result that does not fit in an {@code int}.
+ * <p>
+ * Instances hold mutable scratch state and are not thread-safe; use one evaluator per thread.
+ */
+public final class EquationEvaluator {
+    public static final int OK = 0;
+    public static final int MALFORMED = 1;
+    public static final int DIVISION_BY_ZERO = 2;
+    public static final int NON_INTEGER_DIVISION = 3;
+    public static final int OVERFLOW = 4;
+    public static final int NOT_EQUAL = 5;
+
+    private int[] operands = new int[8];
+    private char[] operators = new char[8]; // operators[i] sits between operands[i] and operands[i + 1]
+    private int operandCount;
+    private int value;
+
+    /**
+     * Compiles {@code expression[from, to)} into the internal operand and operator arrays.
+     * A single leading '+' or '-' is accepted as the sign of the first operand.
+     *
+     * @return {@link #OK}, {@link #MALFORMED} or {@link #OVERFLOW} if a literal exceeds {@code int}
+     */
+    public int compile(CharSequence expression, int from, int to) {
+        operandCount = 0;
+        int i = from;
+        boolean negative = false;
+        if (i < to && (expression.charAt(i) == '-' || expression.charAt(i) == '+')) {
+            negative = expression.charAt(i) == '-';
+            i++;
+        }
+        while (true) {
+            if (i >= to || !isDigit(expression.charAt(i))) {
+                return MALFORMED; // every operator must be followed by a number
+            }
+            long number = 0;
+            while (i < to && isDigit(expression.charAt(i))) {
+                number = number * 10 + (expression.charAt(i) - '0');
+                if (number > Integer.MAX_VALUE + 1L) {
+                    return OVERFLOW;
+                }
+                i++;
+            }
+            if (negative) {
+                number = -number;
+                negative = false;
+            }
+            if (number > Integer.MAX_VALUE) {
+                return OVERFLOW;
+            }
+            ensureCapacity(operandCount + 1);
+            operands[operandCount] = (int) number;
+            if (i == to) {
+                operandCount++;
+                return OK;
+            }
+            char op = expression.charAt(i);
+            if (!isOperator(op)) {
+                return MALFORMED;
+            }
+            operators[operandCount++] = op;
+            i++;
+        }
+    }
+
+    /**
+     * Evaluates the most recently compiled expression. On success the result is available
+     * through {@link #getValue()}.
+     *
+     * @return {@link #OK}, {@link #DIVISION_BY_ZERO}, {@link #NON_INTEGER_DIVISION} or {@link #OVERFLOW}
+     */
+    public int run() {
+        long sum = 0;
+        long term = operands[0];
+        for (int i = 1; i < operandCount; i++) {
+            int operand = operands[i];
+            switch (operators[i - 1]) {
+                case '*':
+                    term *= operand;
+                    break;
+                case '/':
+                    if (operand == 0) return DIVISION_BY_ZERO;
+                    if (term % operand != 0) return NON_INTEGER_DIVISION;
+                    term /= operand;
+                    break;
+                case '+':
+                    sum += term;
+                    term = operand;
+                    break;
+                default: // '-'
+                    sum += term;
+                    term = -(long) operand;
+                    break;
+            }
+            if (!fitsInt(term) || !fitsInt(sum)) {
+                return OVERFLOW;
+            }
+        }
+        sum += term;
+        if (!fitsInt(sum)) {
+            return OVERFLOW;
+        }
+        value = (int) sum;
+        return OK;
+    }
+
+    /**
+     * Compiles and evaluates {@code expression[from, to)}.
+     */
+    public int evaluate(CharSequence expression, int from, int to) {
+        int status = compile(expression, from, to);
+        return status == OK ? run() : status;
+    }
+
+    public int evaluate(CharSequence expression) {
+        return evaluate(expression, 0, expression.length());
+    }
+
+    /**
+     * Checks that {@code equation} has exactly one '=' and that both sides evaluate to the
+     * same value.
+     *
+     * @return {@link #OK} if the equation holds, {@link #NOT_EQUAL} if both sides are valid but
+     * differ, otherwise the status of the side that failed
+     */
+    public int checkEquation(CharSequence equation) {
+        int length = equation.length();
+        int equals = -1;
+        for (int i = 0; i < length; i++) {
+            if (equation.charAt(i) == '=') {
+                if (equals >= 0) return MALFORMED;
+                equals = i;
+            }
+        }
+        if (equals < 0) {
+            return MALFORMED;
+        }
+        int status = evaluate(equation, 0, equals);
+        if (status != OK) {
+            return status;
+        }
+        int left = value;
+        status = evaluate(equation, equals + 1, length);
+        if (status != OK) {
+            return status;
+        }
+        return left == value ? OK : NOT_EQUAL;
+    }
+
+    public boolean isCorrectEquation(CharSequence equation) {
+        return checkEquation(equation) == OK;
+    }
+
+    /**
+     * Returns the result of the last successful evaluation.
+     */
+    public int getValue() {
+        return value;
+    }
+
+    public int getOperandCount() {
+        return operandCount;
+    }
+
+    public int getOperand(int index) {
+        return operands[index];
+    }
+
+    /**
+     * Returns the operator between operand {@code index} and operand {@code index + 1}.
+     */
+    public char getOperator(int index) {
+        return operators[index];
+    }
+
+    /**
+     * Returns a short human-readable description of a status code.
+     */
+    public static String describe(int status) {
+        switch (status) {
+            case OK:
+                return "OK";
+            case MALFORMED:
+                return "Malformed expression";
+            case DIVISION_BY_ZERO:
+                return "Cannot divide by zero";
+            case NON_INTEGER_DIVISION:
+                return "Division does not produce an integer";
+            case OVERFLOW:
+                return "Integer overflow";
+            case NOT_EQUAL:
+                return "Both sides are not equal";
+            default:
+                return "Unknown status " + status;
+        }
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isOperator(char c) {
+        return c == '+' || c == '-' || c == '*' || c == '/';
+    }
+
+    private static boolean fitsInt(long v) {
+        return v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE;
+    }
+
+    private void ensureCapacity(int count) {
+        if (count > operands.length) {
+            int capacity = Math.max(count, operands.length * 2);
+            operands = Arrays.copyOf(operands, capacity);
+            operators = Arrays.copyOf(operators, capacity);
+        }
+    }
+}
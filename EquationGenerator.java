@@ -0,0 +1,336 @@
+// EquationGenerator.java
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enumerates every valid equation of a given length and writes them to a text file, one per line.
+ * <p>
+ * Equations have the form {@code expression=result}: the left-hand side uses at least one of
+ * {@code + - * /} with the precedence rules of {@link EquationEvaluator}, and the right-hand side
+ * is a non-negative number. Numbers never have leading zeros, there are no unary signs, every
+ * division must be exact and no intermediate value may overflow an {@code int}.
+ * <p>
+ * The search space is split by the first number of the equation into chunks that run as
+ * fork/join tasks. Each chunk streams its equations to its own part file and the parts are
+ * concatenated in chunk order, so the output is identical from run to run regardless of
+ * scheduling. Within a chunk the search is a depth-first walk that carries the running sum and
+ * the current multiplicative term; prefixes that can no longer reach a result with the right
+ * number of digits are abandoned, and the last number before '=' is solved for directly instead
+ * of being enumerated.
+ */
+public final class EquationGenerator {
+    public static final int MIN_LENGTH = 5;
+    public static final int MAX_LENGTH = 12;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_LENGTH + 2];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final int length;
+
+    public EquationGenerator(int length) {
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Equation length must be between " + MIN_LENGTH + " and " + MAX_LENGTH + ": " + length);
+        }
+        this.length = length;
+    }
+
+    /**
+     * Returns the name of the text dictionary for equations of the given length. The classic
+     * seven character dictionary keeps its historical name.
+     */
+    public static String dictionaryFileName(int length) {
+        return length == 7 ? "equations.txt" : "equations" + length + ".txt";
+    }
+
+    /**
+     * Generates all equations into {@code output}, replacing any existing file.
+     *
+     * @return the number of equations written
+     */
+    public long generate(Path output) throws IOException {
+        return generate(output, ForkJoinPool.commonPool());
+    }
+
+    public long generate(Path output, ForkJoinPool pool) throws IOException {
+        Path absolute = output.toAbsolutePath();
+        Path directory = Files.createTempDirectory(absolute.getParent(), "equations-parts");
+        List<Chunk> chunks = planChunks(directory);
+        AtomicLong count = new AtomicLong();
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(chunks);
+                    for (Chunk chunk : chunks) {
+                        count.addAndGet(chunk.written);
+                    }
+                }
+            });
+            try (FileChannel out = FileChannel.open(absolute, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Chunk chunk : chunks) {
+                    try (FileChannel in = FileChannel.open(chunk.part, StandardOpenOption.READ)) {
+                        long size = in.size();
+                        long position = 0;
+                        while (position < size) {
+                            position += in.transferTo(position, size - position, out);
+                        }
+                    }
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (Chunk chunk : chunks) {
+                Files.deleteIfExists(chunk.part);
+            }
+            Files.deleteIfExists(directory);
+        }
+        return count.get();
+    }
+
+    /**
+     * Splits the search by the value of the first number. Short first numbers leave the most
+     * room behind them, so each gets a chunk of its own; longer ones are grouped into ranges.
+     */
+    private List<Chunk> planChunks(Path directory) {
+        List<Chunk> chunks = new ArrayList<>();
+        // The first number needs at least an operator, another number, '=' and one result digit after it
+        for (int digits = 1; digits <= length - 4; digits++) {
+            long from = digits == 1 ? 0 : POWERS_OF_TEN[digits - 1];
+            long to = POWERS_OF_TEN[digits];
+            long step = Math.max(1, (to - from) / 64);
+            for (long start = from; start < to; start += step) {
+                Path part = directory.resolve("part-" + chunks.size());
+                chunks.add(new Chunk(part, digits, start, Math.min(to, start + step)));
+            }
+        }
+        return chunks;
+    }
+
+    private final class Chunk extends RecursiveAction {
+        private final Path part;
+        private final int digits;
+        private final long from;
+        private final long to;
+        private long written;
+
+        Chunk(Path part, int digits, long from, long to) {
+            this.part = part;
+            this.digits = digits;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part), 1 << 16)) {
+                Search search = new Search(out);
+                for (long first = from; first < to; first++) {
+                    search.writeNumber(0, first, digits);
+                    search.afterNumber(digits, 0, first);
+                }
+                written = search.count;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Depth-first search over the left-hand side, writing into a single reusable line buffer.
+     */
+    private final class Search {
+        private final OutputStream out;
+        private final byte[] line = new byte[length + 1];
+        private long count;
+
+        Search(OutputStream out) {
+            this.out = out;
+            line[length] = '\n';
+        }
+
+        /**
+         * Continues the search after a number ending just before {@code position}, with the
+         * evaluation state reduced to {@code sum} plus the current {@code term}.
+         */
+        void afterNumber(int position, long sum, long term) throws IOException {
+            // Room is needed for an operator, one more number, '=' and at least one result digit
+            if (length - position < 4 || cannotBalance(position, sum, term)) {
+                return;
+            }
+            for (int o = 0; o < 4; o++) {
+                byte op = (byte) "+-*/".charAt(o);
+                line[position] = op;
+                int start = position + 1;
+                int maxDigits = length - start - 2;
+                for (int digits = 1; digits <= maxDigits; digits++) {
+                    // The last number before '=' is solved for instead of enumerated
+                    solveLast(start, digits, op, sum, term);
+                    if (digits <= maxDigits - 2) {
+                        long from = digits == 1 ? 0 : POWERS_OF_TEN[digits - 1];
+                        long to = POWERS_OF_TEN[digits];
+                        for (long x = from; x < to; x++) {
+                            long newSum = sum;
+                            long newTerm;
+                            switch (op) {
+                                case '+':
+                                    newSum += term;
+                                    newTerm = x;
+                                    break;
+                                case '-':
+                                    newSum += term;
+                                    newTerm = -x;
+                                    break;
+                                case '*':
+                                    newTerm = term * x;
+                                    break;
+                                default:
+                                    if (x == 0 || term % x != 0) continue;
+                                    newTerm = term / x;
+                                    break;
+                            }
+                            if (!fitsInt(newSum) || !fitsInt(newTerm)) {
+                                continue;
+                            }
+                            writeNumber(start, x, digits);
+                            afterNumber(start + digits, newSum, newTerm);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Emits every equation whose last left-hand number starts at {@code start} and has
+         * {@code digits} digits, preceded by operator {@code op}.
+         */
+        private void solveLast(int start, int digits, byte op, long sum, long term) throws IOException {
+            int resultDigits = length - start - digits - 1;
+            long lo = digits == 1 ? 0 : POWERS_OF_TEN[digits - 1];
+            long hi = POWERS_OF_TEN[digits] - 1;
+            long vmin = resultDigits == 1 ? 0 : POWERS_OF_TEN[resultDigits - 1];
+            long vmax = Math.min(POWERS_OF_TEN[resultDigits] - 1, Integer.MAX_VALUE);
+            line[start + digits] = '=';
+            switch (op) {
+                case '+': {
+                    long s = sum + term;
+                    if (!fitsInt(s)) return;
+                    for (long x = Math.max(lo, vmin - s), end = Math.min(hi, vmax - s); x <= end; x++) {
+                        emit(start, x, digits, s + x, resultDigits);
+                    }
+                    break;
+                }
+                case '-': {
+                    long s = sum + term;
+                    if (!fitsInt(s)) return;
+                    for (long x = Math.max(lo, s - vmax), end = Math.min(hi, s - vmin); x <= end; x++) {
+                        emit(start, x, digits, s - x, resultDigits);
+                    }
+                    break;
+                }
+                case '*': {
+                    long from = lo;
+                    long end = hi;
+                    if (term > 0) {
+                        from = Math.max(lo, ceilDiv(vmin - sum, term));
+                        end = Math.min(hi, Math.floorDiv(vmax - sum, term));
+                    } else if (term < 0) {
+                        from = Math.max(lo, ceilDiv(vmax - sum, term));
+                        end = Math.min(hi, Math.floorDiv(vmin - sum, term));
+                    } else if (sum < vmin || sum > vmax) {
+                        return;
+                    }
+                    for (long x = from; x <= end; x++) {
+                        long product = term * x;
+                        if (fitsInt(product)) {
+                            emit(start, x, digits, sum + product, resultDigits);
+                        }
+                    }
+                    break;
+                }
+                default: {
+                    for (long x = Math.max(lo, 1), end = Math.min(hi, Math.abs(term)); x <= end; x++) {
+                        if (term % x == 0) {
+                            long v = sum + term / x;
+                            if (v >= vmin && v <= vmax) {
+                                emit(start, x, digits, v, resultDigits);
+                            }
+                        }
+                    }
+                    if (term == 0 && sum >= vmin && sum <= vmax) {
+                        for (long x = Math.max(lo, 1); x <= hi; x++) {
+                            emit(start, x, digits, sum, resultDigits);
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Returns true if no continuation of the current prefix can produce a result with the
+         * number of digits left over. Any expression of k characters is smaller than 10^k in
+         * magnitude, and it can scale the current term by at most that much.
+         */
+        private boolean cannotBalance(int position, long sum, long term) {
+            int remaining = length - position; // operator, rest of the left-hand side, '=' and result
+            double reach = (Math.abs((double) term) + 1) * POWERS_OF_TEN[remaining - 2];
+            double largest = POWERS_OF_TEN[remaining - 3] - 1;
+            return sum + reach < 0 || sum - reach > largest;
+        }
+
+        private void emit(int start, long x, int digits, long value, int resultDigits) throws IOException {
+            writeNumber(start, x, digits);
+            writeNumber(start + digits + 1, value, resultDigits);
+            out.write(line);
+            count++;
+        }
+
+        void writeNumber(int start, long value, int digits) {
+            for (int i = start + digits - 1; i >= start; i--) {
+                line[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+        }
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return -Math.floorDiv(-a, b);
+    }
+
+    private static boolean fitsInt(long v) {
+        return v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java EquationGenerator <length> [output file]");
+            return;
+        }
+        int length = Integer.parseInt(args[0]);
+        Path output = Paths.get(args.length > 1 ? args[1] : dictionaryFileName(length));
+        long start = System.nanoTime();
+        long count = new EquationGenerator(length).generate(output);
+        System.out.printf("Generated %d equations of length %d into %s in %.1f s%n",
+                count, length, output, (System.nanoTime() - start) / 1e9);
+    }
+}
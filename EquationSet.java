@@ -0,0 +1,213 @@
+// EquationSet.java
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Membership test over an {@link EquationDictionary}, answering whether a string is one of its
+ * equations without parsing or evaluating it.
+ * <p>
+ * The set is a blocked bloom filter in front of an open-addressing table of entry indices; the
+ * equations themselves stay in the dictionary mapping, so the set costs about 16 bits of filter
+ * and 8 bytes of table per entry however long the equations are, and nothing of it lives on the
+ * heap. A lookup hashes the string once. The filter keeps all bits of one key in a single
+ * {@code long}, so most strings that are not in the dictionary are rejected after one read;
+ * the rest probe the table, which is at most half full, and compare against the dictionary
+ * entry in place.
+ * <p>
+ * Like {@link FeedbackMatrix}, the set is built once into a memory-mapped cache file named after
+ * the dictionary's content hash, and later runs only map it. File layout: a header of magic,
+ * version, dictionary size, the base-2 logarithms of the filter and table sizes and the 64
+ * character dictionary hash, followed by the filter words and the table slots, each slot holding
+ * an entry index plus one, or 0 when empty.
+ */
+public final class EquationSet {
+    public static final int MAGIC = 0x4E4D4553; // "NMES"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 96;
+
+    private static final int HASH_LENGTH = 64;
+    private static final int BLOOM_BITS_PER_ENTRY = 16;
+    private static final int MAX_TABLE_SHIFT = 28; // 1 GB of slots keeps the file within one mapping
+
+    private static final Map<String, EquationSet> SHARED = new HashMap<>();
+
+    private final EquationDictionary dictionary;
+    private final ByteBuffer buffer;
+    private final int bloomMask;  // in words
+    private final int tableOffset;
+    private final int tableShift;
+    private final int tableMask;
+
+    private EquationSet(EquationDictionary dictionary, ByteBuffer buffer, int bloomShift, int tableShift) {
+        this.dictionary = dictionary;
+        this.buffer = buffer;
+        this.bloomMask = (1 << bloomShift) - 1;
+        this.tableOffset = HEADER_SIZE + (Long.BYTES << bloomShift);
+        this.tableShift = tableShift;
+        this.tableMask = (1 << tableShift) - 1;
+    }
+
+    /**
+     * Returns the set for {@code dictionary}, mapping the cache file if one exists for its
+     * content hash and building it otherwise. Sets are shared within the process.
+     */
+    public static synchronized EquationSet forDictionary(EquationDictionary dictionary) throws IOException {
+        String hash = dictionary.contentHash();
+        EquationSet set = SHARED.get(hash);
+        if (set == null) {
+            Path file = cacheFile(dictionary);
+            if (!Files.exists(file)) {
+                build(dictionary, file);
+            }
+            set = open(file, dictionary);
+            SHARED.put(hash, set);
+        }
+        return set;
+    }
+
+    public static Path cacheFile(EquationDictionary dictionary) {
+        return Paths.get("equations-" + dictionary.contentHash().substring(0, 16) + ".set");
+    }
+
+    /**
+     * Hashes every dictionary entry into a new set file at {@code file}.
+     */
+    public static void build(EquationDictionary dictionary, Path file) throws IOException {
+        int size = dictionary.size();
+        // Words of the filter and slots of the table, both powers of two
+        int bloomShift = Math.max(0, log2Ceiling((long) size * BLOOM_BITS_PER_ENTRY) - 6);
+        int tableShift = Math.max(1, log2Ceiling(2L * size));
+        if (tableShift > MAX_TABLE_SHIFT) {
+            throw new IllegalArgumentException("Dictionary too large for an equation set: " + size);
+        }
+        long fileSize = HEADER_SIZE + ((long) Long.BYTES << bloomShift) + ((long) Integer.BYTES << tableShift);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            buffer.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0)
+                    .putInt(size).putInt(bloomShift).putInt(tableShift)
+                    .put(dictionary.contentHash().getBytes(StandardCharsets.US_ASCII));
+            EquationSet set = new EquationSet(dictionary, buffer, bloomShift, tableShift);
+            for (int entry = 0; entry < size; entry++) {
+                set.add(entry);
+            }
+            buffer.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Maps an existing set file, checking that it was built from {@code dictionary}.
+     */
+    public static EquationSet open(Path file, EquationDictionary dictionary) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Equation set too large to map: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+                throw new IOException("Not an equation set: " + file);
+            }
+            int size = buffer.getInt(8);
+            int bloomShift = buffer.getInt(12);
+            int tableShift = buffer.getInt(16);
+            byte[] hash = new byte[HASH_LENGTH];
+            buffer.position(20);
+            buffer.get(hash);
+            if (size != dictionary.size() || !new String(hash, StandardCharsets.US_ASCII).equals(dictionary.contentHash())) {
+                throw new IOException("Equation set " + file + " was built from a different dictionary");
+            }
+            return new EquationSet(dictionary, buffer, bloomShift, tableShift);
+        }
+    }
+
+    public boolean contains(CharSequence equation) {
+        return indexOf(equation) >= 0;
+    }
+
+    /**
+     * Returns the dictionary index of {@code equation}, or -1 if it is not in the dictionary.
+     */
+    public int indexOf(CharSequence equation) {
+        long hash = 0xCBF29CE484222325L; // FNV-1a, then a finalizer so every bit depends on every character
+        for (int i = 0; i < equation.length(); i++) {
+            hash = (hash ^ equation.charAt(i)) * 0x100000001B3L;
+        }
+        hash = mix(hash);
+        long bits = bloomBits(hash);
+        if ((buffer.getLong(bloomWord(hash)) & bits) != bits) {
+            return -1;
+        }
+        for (int slot = slotOf(hash); ; slot = (slot + 1) & tableMask) {
+            int entry = buffer.getInt(tableOffset + (slot << 2));
+            if (entry == 0) {
+                return -1;
+            }
+            if (dictionary.matches(entry - 1, equation)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    public EquationDictionary getDictionary() {
+        return dictionary;
+    }
+
+    private void add(int entry) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0, length = dictionary.lengthOf(entry); i < length; i++) {
+            hash = (hash ^ dictionary.charAt(entry, i)) * 0x100000001B3L;
+        }
+        hash = mix(hash);
+        int word = bloomWord(hash);
+        buffer.putLong(word, buffer.getLong(word) | bloomBits(hash));
+        int slot = slotOf(hash);
+        while (true) {
+            int occupant = buffer.getInt(tableOffset + (slot << 2));
+            if (occupant == 0) {
+                buffer.putInt(tableOffset + (slot << 2), entry + 1);
+                return;
+            }
+            if (dictionary.matches(occupant - 1, dictionary.get(entry))) {
+                return; // A duplicate entry; the first index wins
+            }
+            slot = (slot + 1) & tableMask;
+        }
+    }
+
+    private int bloomWord(long hash) {
+        return HEADER_SIZE + (((int) hash & bloomMask) << 3);
+    }
+
+    private static long bloomBits(long hash) {
+        return 1L << (hash >>> 32) | 1L << (hash >>> 38) | 1L << (hash >>> 44);
+    }
+
+    private int slotOf(long hash) {
+        // Fibonacci hashing takes the table index from bits the filter does not use
+        return (int) ((hash * 0x9E3779B97F4A7C15L) >>> (64 - tableShift));
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ hash >>> 33;
+    }
+
+    private static int log2Ceiling(long value) {
+        return 64 - Long.numberOfLeadingZeros(Math.max(1, value - 1));
+    }
+}
@@ -0,0 +1,225 @@
+// Feedback.java
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Packed representation of the feedback for one guess.
+ * <p>
+ * Every position is in one of three states, {@link #ABSENT}, {@link #MISPLACED} or
+ * {@link #CORRECT}, and a whole guess is encoded as the base-3 number
+ * {@code sum(state[i] * 3^i)}. A seven character guess therefore fits in a code below 2187, which
+ * can be stored in a {@code short} and used directly as an array index.
+ * <p>
+ * Scoring follows the usual rules: exact matches are marked first, then every remaining guess
+ * character, from left to right, claims the first unmatched occurrence of the same character in
+ * the target. Only the number of unmatched occurrences matters for that second pass, so the
+ * target's unmatched characters are tallied in 4-bit counters packed into a single {@code long}.
+ * That limits guesses to {@link #MAX_LENGTH} characters, so no counter can overflow into its
+ * neighbour. Scoring works on primitive state only and never allocates.
+ */
+public final class Feedback {
+    public static final int ABSENT = 0;
+    public static final int MISPLACED = 1;
+    public static final int CORRECT = 2;
+
+    /**
+     * Longest guess that can be scored: a 4-bit counter holds at most 15 occurrences of a symbol.
+     * Codes of this length still fit in an {@code int}.
+     */
+    public static final int MAX_LENGTH = 15;
+
+    /** Equation alphabet; each symbol gets a 4-bit counter inside one {@code long}. */
+    public static final String ALPHABET = "0123456789+-*/=";
+
+    private static final int[] POWERS_OF_THREE = new int[MAX_LENGTH + 1];
+    private static final byte[] SYMBOLS = new byte[128]; // character -> counter shift, or -1
+
+    static {
+        Arrays.fill(SYMBOLS, (byte) -1);
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            SYMBOLS[ALPHABET.charAt(i)] = (byte) (i * 4);
+        }
+        POWERS_OF_THREE[0] = 1;
+        for (int i = 1; i < POWERS_OF_THREE.length; i++) {
+            POWERS_OF_THREE[i] = POWERS_OF_THREE[i - 1] * 3;
+        }
+    }
+
+    private Feedback() {
+    }
+
+    /**
+     * Scores {@code guess} against {@code target}. Both must have the same length.
+     */
+    public static int score(CharSequence guess, CharSequence target) {
+        int length = guess.length();
+        if (target.length() != length || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Cannot score \"" + guess + "\" against \"" + target + "\"");
+        }
+        int code = 0;
+        long unmatched = 0;
+        for (int i = 0; i < length; i++) {
+            char g = guess.charAt(i);
+            char t = target.charAt(i);
+            if (g == t) {
+                code += CORRECT * POWERS_OF_THREE[i];
+            } else if (t >= SYMBOLS.length || SYMBOLS[t] < 0 || g >= SYMBOLS.length || SYMBOLS[g] < 0) {
+                return scoreSlowly(guess, target);
+            } else {
+                unmatched += 1L << SYMBOLS[t];
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            char g = guess.charAt(i);
+            if (g != target.charAt(i)) {
+                long bit = 1L << SYMBOLS[g];
+                if ((unmatched >>> SYMBOLS[g] & 0xF) != 0) {
+                    unmatched -= bit;
+                    code += MISPLACED * POWERS_OF_THREE[i];
+                }
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Scores two equations stored as ASCII bytes, for example packed dictionary records. Both
+     * must only contain equation symbols and be at most {@link #MAX_LENGTH} long; this is the
+     * inner loop of table builds, so neither is checked.
+     */
+    public static int score(byte[] guess, int guessOffset, byte[] target, int targetOffset, int length) {
+        int code = 0;
+        long unmatched = 0;
+        for (int i = 0; i < length; i++) {
+            byte g = guess[guessOffset + i];
+            byte t = target[targetOffset + i];
+            if (g == t) {
+                code += CORRECT * POWERS_OF_THREE[i];
+            } else {
+                unmatched += 1L << SYMBOLS[t];
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            byte g = guess[guessOffset + i];
+            if (g != target[targetOffset + i]) {
+                int shift = SYMBOLS[g];
+                if ((unmatched >>> shift & 0xF) != 0) {
+                    unmatched -= 1L << shift;
+                    code += MISPLACED * POWERS_OF_THREE[i];
+                }
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Scores {@code guess} against an ASCII record read in place from {@code target}, such as an
+     * entry of a mapped dictionary, so the record is never copied. Both must only contain
+     * equation symbols and be at most {@link #MAX_LENGTH} long.
+     */
+    static int score(CharSequence guess, ByteBuffer target, int targetOffset) {
+        int length = guess.length();
+        int code = 0;
+        long unmatched = 0;
+        for (int i = 0; i < length; i++) {
+            char g = guess.charAt(i);
+            byte t = target.get(targetOffset + i);
+            if (g == t) {
+                code += CORRECT * POWERS_OF_THREE[i];
+            } else {
+                unmatched += 1L << SYMBOLS[t];
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            char g = guess.charAt(i);
+            if (g != target.get(targetOffset + i)) {
+                int shift = SYMBOLS[g];
+                if ((unmatched >>> shift & 0xF) != 0) {
+                    unmatched -= 1L << shift;
+                    code += MISPLACED * POWERS_OF_THREE[i];
+                }
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Reference scoring for characters outside the equation alphabet.
+     */
+    private static int scoreSlowly(CharSequence guess, CharSequence target) {
+        int length = guess.length();
+        int code = 0;
+        int matched = 0;
+        for (int i = 0; i < length; i++) {
+            if (guess.charAt(i) == target.charAt(i)) {
+                matched |= 1 << i;
+                code += CORRECT * POWERS_OF_THREE[i];
+            }
+        }
+        int correct = matched;
+        for (int i = 0; i < length; i++) {
+            if ((correct & 1 << i) != 0) continue;
+            char c = guess.charAt(i);
+            for (int j = 0; j < length; j++) {
+                if ((matched & 1 << j) == 0 && target.charAt(j) == c) {
+                    matched |= 1 << j;
+                    code += MISPLACED * POWERS_OF_THREE[i];
+                    break;
+                }
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Returns the index of {@code c} in {@link #ALPHABET}, or -1 if it is not an equation symbol.
+     */
+    public static int symbolOf(char c) {
+        return c < SYMBOLS.length ? SYMBOLS[c] >> 2 : -1;
+    }
+
+    /**
+     * Returns the state of {@code position} in a packed code.
+     */
+    public static int state(int code, int position) {
+        return code / POWERS_OF_THREE[position] % 3;
+    }
+
+    /**
+     * Returns the code of a fully correct guess of the given length.
+     */
+    public static int allCorrect(int length) {
+        return POWERS_OF_THREE[length] - 1;
+    }
+
+    /**
+     * Returns the number of distinct codes for guesses of the given length.
+     */
+    public static int patternCount(int length) {
+        return POWERS_OF_THREE[length];
+    }
+
+    /**
+     * Builds the human-readable feedback, one line per character. Only the CLI needs this, so
+     * it is produced on demand rather than for every scored guess.
+     */
+    public static String describe(CharSequence guess, int code) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < guess.length(); i++) {
+            if (i > 0) text.append(System.lineSeparator());
+            text.append(guess.charAt(i));
+            switch (state(code, i)) {
+                case CORRECT:
+                    text.append(" is in the equation and in the correct spot");
+                    break;
+                case MISPLACED:
+                    text.append(" is in the equation, but in the wrong spot.");
+                    break;
+                default:
+                    text.append(" is not in the target equation at all.");
+                    break;
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,288 @@
+// FeedbackMatrix.java
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Precomputed {@link Feedback} code for every (guess, target) pair of a fixed-width dictionary
+ * whose guess is the representative of its {@link EquationClasses equivalence class}.
+ * <p>
+ * Solvers only search over class representatives, so only their rows are stored, while every
+ * row still covers all entries as targets; on the default dictionary that leaves out two rows
+ * in five. Other guesses, such as a last candidate played as it is, are scored on the fly.
+ * <p>
+ * The table lives outside the heap in a memory-mapped cache file named after the dictionary's
+ * content hash and a digest of the representatives, so a change to the classes builds a new
+ * file. The first request for a dictionary computes all rows in parallel straight into the
+ * mapping and moves the finished file into place; later runs find the file and only map it.
+ * Codes are stored in one, two or four bytes per cell depending on the equation length. Because
+ * a single mapping is limited to 2 GB, rows are grouped into power-of-two sized segments, so a
+ * lookup is a shift, a mask and one read.
+ * <p>
+ * File layout: a header of magic, version, cell width, dictionary size, row count, rows per
+ * segment, the 64 character dictionary hash and the representatives digest, followed by the
+ * rows in class order.
+ */
+public final class FeedbackMatrix {
+    public static final int MAGIC = 0x4E4D464D; // "NMFM"
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 96;
+
+    private static final int HASH_LENGTH = 64;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final int ROWS_PER_TASK = 16;
+
+    private static final Map<String, FeedbackMatrix> SHARED = new HashMap<>();
+
+    private final int size;
+    private final int rowCount;
+    private final int[] rowOf; // entry -> row, or -1 for entries without one
+    private final byte[] records;
+    private final int length;
+    private final int cellBytes;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final MappedByteBuffer[] segments;
+
+    private FeedbackMatrix(EquationDictionary dictionary, int[] rows, int cellBytes, int segmentShift,
+                           MappedByteBuffer[] segments) {
+        this.size = dictionary.size();
+        this.rowCount = rows.length;
+        this.rowOf = new int[size];
+        Arrays.fill(rowOf, -1);
+        for (int row = 0; row < rows.length; row++) {
+            rowOf[rows[row]] = row;
+        }
+        this.records = dictionary.toByteArray();
+        this.length = dictionary.getEquationLength();
+        this.cellBytes = cellBytes;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1 << segmentShift) - 1;
+        this.segments = segments;
+    }
+
+    /**
+     * Returns the matrix for {@code dictionary}, mapping the cache file if one exists for its
+     * content hash and building it otherwise. Matrices are shared within the process.
+     */
+    public static synchronized FeedbackMatrix forDictionary(EquationDictionary dictionary) throws IOException {
+        String hash = dictionary.contentHash();
+        FeedbackMatrix matrix = SHARED.get(hash);
+        if (matrix == null) {
+            Path file = cacheFile(dictionary);
+            if (!Files.exists(file)) {
+                build(dictionary, file, ForkJoinPool.commonPool());
+            }
+            matrix = open(file, dictionary);
+            SHARED.put(hash, matrix);
+        }
+        return matrix;
+    }
+
+    public static Path cacheFile(EquationDictionary dictionary) {
+        long rowsDigest = rowsDigest(EquationClasses.forDictionary(dictionary).representatives());
+        return Paths.get("feedback-" + dictionary.contentHash().substring(0, 16) + "-"
+                + String.format("%016x", rowsDigest).substring(0, 8) + ".matrix");
+    }
+
+    /**
+     * Computes the row of every class representative in parallel and writes the matrix to
+     * {@code file}.
+     */
+    public static void build(EquationDictionary dictionary, Path file, ForkJoinPool pool) throws IOException {
+        int length = dictionary.getEquationLength();
+        if (length == 0) {
+            throw new IllegalArgumentException("A feedback matrix needs a fixed-width dictionary");
+        }
+        int size = dictionary.size();
+        int[] rows = EquationClasses.forDictionary(dictionary).representatives();
+        int cellBytes = cellBytes(length);
+        int segmentShift = segmentShift(size, cellBytes);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort((short) VERSION).putShort((short) cellBytes)
+                    .putInt(size).putInt(rows.length).putInt(1 << segmentShift)
+                    .put(dictionary.contentHash().getBytes(StandardCharsets.US_ASCII))
+                    .putLong(rowsDigest(rows));
+            header.clear();
+            channel.write(header, 0);
+            MappedByteBuffer[] segments = map(channel, FileChannel.MapMode.READ_WRITE, rows.length, size,
+                    cellBytes, segmentShift);
+            FeedbackMatrix matrix = new FeedbackMatrix(dictionary, rows, cellBytes, segmentShift, segments);
+            pool.invoke(matrix.new RowTask(rows, 0, rows.length));
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Maps an existing cache file, checking that it was built from {@code dictionary} and its
+     * current class representatives.
+     */
+    public static FeedbackMatrix open(Path file, EquationDictionary dictionary) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getShort() != VERSION) {
+                throw new IOException("Not a feedback matrix: " + file);
+            }
+            int cellBytes = header.getShort();
+            int size = header.getInt();
+            int rowCount = header.getInt();
+            int rowsPerSegment = header.getInt();
+            byte[] hash = new byte[HASH_LENGTH];
+            header.get(hash);
+            long digest = header.getLong();
+            if (size != dictionary.size() || !new String(hash, StandardCharsets.US_ASCII).equals(dictionary.contentHash())) {
+                throw new IOException("Feedback matrix " + file + " was built from a different dictionary");
+            }
+            int[] rows = EquationClasses.forDictionary(dictionary).representatives();
+            if (rowCount != rows.length || digest != rowsDigest(rows)) {
+                throw new IOException("Feedback matrix " + file + " was built for different equation classes");
+            }
+            int segmentShift = Integer.numberOfTrailingZeros(rowsPerSegment);
+            MappedByteBuffer[] segments = map(channel, FileChannel.MapMode.READ_ONLY, rowCount, size, cellBytes, segmentShift);
+            return new FeedbackMatrix(dictionary, rows, cellBytes, segmentShift, segments);
+        }
+    }
+
+    /**
+     * Returns the feedback code for {@code guess} played against {@code target}, both given as
+     * dictionary indices. Guesses that are not class representatives are scored directly.
+     */
+    public int get(int guess, int target) {
+        int row = rowOf[guess];
+        if (row < 0) {
+            return Feedback.score(records, guess * length, records, target * length, length);
+        }
+        MappedByteBuffer segment = segments[row >>> segmentShift];
+        int cell = (int) ((long) (row & segmentMask) * size + target);
+        switch (cellBytes) {
+            case 1:
+                return segment.get(cell) & 0xFF;
+            case 2:
+                return segment.getChar(cell << 1);
+            default:
+                return segment.getInt(cell << 2);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of stored rows, one per equivalence class.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    private final class RowTask extends RecursiveAction {
+        private final int[] rows;
+        private final int from;
+        private final int to;
+
+        RowTask(int[] rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RowTask(rows, from, middle), new RowTask(rows, middle, to));
+                return;
+            }
+            // Rows are scored into a heap buffer and copied into the mapping in one bulk put
+            ByteBuffer row = ByteBuffer.allocate(size * cellBytes);
+            for (int index = from; index < to; index++) {
+                int guessOffset = rows[index] * length;
+                for (int target = 0, targetOffset = 0; target < size; target++, targetOffset += length) {
+                    int code = Feedback.score(records, guessOffset, records, targetOffset, length);
+                    switch (cellBytes) {
+                        case 1:
+                            row.put(target, (byte) code);
+                            break;
+                        case 2:
+                            row.putChar(target << 1, (char) code);
+                            break;
+                        default:
+                            row.putInt(target << 2, code);
+                            break;
+                    }
+                }
+                ByteBuffer destination = segments[index >>> segmentShift].duplicate();
+                destination.position((int) ((long) (index & segmentMask) * size * cellBytes));
+                row.clear();
+                destination.put(row);
+            }
+        }
+    }
+
+    private static int cellBytes(int length) {
+        int patterns = Feedback.patternCount(length);
+        return patterns <= 1 << 8 ? 1 : patterns <= 1 << 16 ? 2 : 4;
+    }
+
+    /**
+     * Picks the largest power-of-two row count whose segment still fits in one mapping.
+     */
+    private static int segmentShift(int size, int cellBytes) {
+        long rowBytes = Math.max(1L, (long) size * cellBytes);
+        int shift = 0;
+        while (shift < 30 && (rowBytes << (shift + 1)) <= MAX_SEGMENT_BYTES) {
+            shift++;
+        }
+        return shift;
+    }
+
+    /**
+     * Returns the first 64 bits of a SHA-256 digest of the row entries.
+     */
+    private static long rowsDigest(int[] rows) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocate(rows.length * Integer.BYTES);
+            buffer.asIntBuffer().put(rows);
+            return ByteBuffer.wrap(digest.digest(buffer.array())).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, int rowCount, int size,
+                                          int cellBytes, int segmentShift) throws IOException {
+        long rowBytes = (long) size * cellBytes;
+        int rowsPerSegment = 1 << segmentShift;
+        int segmentCount = Math.max(1, (rowCount + rowsPerSegment - 1) >>> segmentShift);
+        MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            int rows = Math.min(rowsPerSegment, rowCount - i * rowsPerSegment);
+            long offset = HEADER_SIZE + (long) i * rowsPerSegment * rowBytes;
+            segments[i] = channel.map(mode, offset, Math.max(0, rows) * rowBytes);
+        }
+        return segments;
+    }
+}
@@ -1,17 +1,56 @@
 import javax.swing.*;
+import java.io.IOException;
+import java.util.Arrays;
 
 public class GUIApp {
-    public static void main(String[] args) {
+    private static GameJournal journal;
+    private static boolean startupCheck;
+
+    public static void main(String[] args) throws IOException {
+        MetricsEndpoint.startIfConfigured(); // Only when -Dnumberle.metrics.port is given
+        if (args.length > 1 && args[0].equals("--boards")) {
+            int boards = Integer.parseInt(args[1]); // One guess plays on every board, e.g. 4, 8 or 32
+            SwingUtilities.invokeLater(() -> createAndShowMultiBoardGUI(boards));
+            return;
+        }
+        // --startup-check exits once the game is interactive, see StartupTimer
+        startupCheck = Arrays.asList(args).contains("--startup-check");
+        journal = GameJournal.openIfConfigured(); // Only when -Dnumberle.journal is given
+        // Map the dictionary and build its candidate filter while Swing starts up on the EDT
+        Thread preload = new Thread(GUIApp::preload, "numberle-preload");
+        preload.setDaemon(true);
+        preload.start();
         SwingUtilities.invokeLater(GUIApp::createAndShowGUI);
 
     }
+
+    private static void preload() {
+        try {
+            CandidateFilter.forDictionary(EquationDictionary.forLength(INumberleModel.DEFAULT_EQUATION_LENGTH));
+        } catch (IOException e) {
+            // The model reports it when it loads the dictionary itself
+        }
+    }
+
+    public static void createAndShowMultiBoardGUI(int boards) {
+        MultiBoardModel model = new MultiBoardModel(boards);
+        NumberleController controller = new NumberleController(model);
+        NumberleView view = new NumberleView(model, controller);
+        controller.setView(view);
+        controller.startNewGame();
+    }
+
     public static void createAndShowGUI() {
         NumberleModel model = new NumberleModel();
+        if (journal != null) {
+            journal.attach(model);
+        }
         NumberleController controller = new NumberleController(model);
         NumberleView view = new NumberleView(model, controller);
         controller.setView(view);
         controller.startNewGame();
-        JFrame frame = new JFrame("Numberle Game");
-        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        if (startupCheck) {
+            view.whenInteractive(() -> StartupTimer.reportAndExit("GUI"));
+        }
     }
 }
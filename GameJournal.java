@@ -0,0 +1,250 @@
+// GameJournal.java
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Append-only binary log of game events, written through memory-mapped segment files.
+ * <p>
+ * A journal subscribes to the {@link NumberleEventBus} of every model attached to it, so the
+ * game thread only hands events to the bus and never waits for the journal. All subscriptions
+ * deliver on the journal's single writer thread, which appends each event to the mapped segment
+ * with a few buffer writes. The same thread forces the segment to disk at most once per commit
+ * interval, so one force covers every record appended since the previous one (group commit).
+ * When a record no longer fits, the segment is forced and the next one is created, so segments
+ * never exceed the configured size.
+ * <p>
+ * Segment files are named {@code <sequence>.journal} and start with a 16 byte header: magic,
+ * version and the segment size. Records follow back to back, each a 16 byte header of type,
+ * payload size, stream id and timestamp, followed by the payload:
+ * <pre>
+ *   GAME_STARTED  target index (int), equation length (byte), dictionary hash prefix (long)
+ *   GUESS_SCORED  feedback code (int), guess (ASCII)
+ *   GAME_OVER     won (byte), attempts (byte)
+ * </pre>
+ * Every attached model gets its own stream id, so one journal can record many games at once. A
+ * record's type byte is written last and unused space is zero, so readers stop cleanly at the
+ * end of the written data. {@link JournalReader} reads the journal back.
+ */
+public final class GameJournal implements Closeable {
+    public static final int MAGIC = 0x4E4D4A4C; // "NMJL"
+    public static final int VERSION = 1;
+    public static final int SEGMENT_HEADER_SIZE = 16;
+    public static final int RECORD_HEADER_SIZE = 16;
+
+    public static final byte GAME_STARTED = 1;
+    public static final byte GUESS_SCORED = 2;
+    public static final byte GAME_OVER = 3;
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 50;
+
+    public static final String DIRECTORY_PROPERTY = "numberle.journal";
+
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ScheduledExecutorService writer;
+    private final AtomicInteger nextStream = new AtomicInteger();
+    private final Map<NumberleEventBus.Subscription, NumberleEventBus> subscriptions = new ConcurrentHashMap<>();
+
+    // Only touched on the writer thread
+    private long sequence;
+    private MappedByteBuffer segment;
+    private boolean dirty;
+    private long records;
+    private volatile boolean closed;
+
+    public GameJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_COMMIT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Opens a journal in {@code directory}. Existing segments are kept, and new records go to a
+     * new segment after them.
+     */
+    public GameJournal(Path directory, int segmentSize, long commitIntervalMillis) throws IOException {
+        if (segmentSize < SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE + Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        for (Path existing : JournalReader.segments(directory)) {
+            sequence = Math.max(sequence, JournalReader.sequenceOf(existing));
+        }
+        roll();
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::commit, commitIntervalMillis, commitIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a journal in the directory named by {@code -Dnumberle.journal}, if it is set.
+     *
+     * @return the journal, or null if none was configured
+     */
+    public static GameJournal openIfConfigured() throws IOException {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        return directory == null ? null : new GameJournal(Paths.get(directory));
+    }
+
+    /**
+     * Starts recording the events of {@code model} under a new stream id.
+     *
+     * @return the subscription, to stop recording with {@link NumberleEventBus#unsubscribe}
+     */
+    public NumberleEventBus.Subscription attach(NumberleModel model) {
+        model.loadEquations();
+        int stream = nextStream.getAndIncrement();
+        int length = model.getEquationLength();
+        long hash = model.getDictionary().contentHashPrefix();
+        NumberleEventBus bus = model.getEventBus();
+        NumberleEventBus.Subscription subscription = bus.subscribe(event -> {
+            try {
+                append(stream, length, hash, event);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, writer);
+        subscriptions.put(subscription, bus);
+        return subscription;
+    }
+
+    /**
+     * Forces everything appended so far to disk and waits for it.
+     */
+    public void sync() throws IOException {
+        try {
+            writer.submit(this::commit).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while syncing the journal", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Journal sync failed", e.getCause());
+        }
+    }
+
+    /**
+     * Returns the number of records appended so far. Only exact once events have drained,
+     * e.g. after {@link #sync()}.
+     */
+    public long getRecordCount() {
+        return records;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Writes out everything queued so far, detaches from every model and stops the writer. Events
+     * published afterwards are dropped, and the models can go on playing.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        sync();
+        // Unsubscribe before the writer stops, so no event is handed to a shut down executor
+        subscriptions.forEach((subscription, bus) -> bus.unsubscribe(subscription));
+        subscriptions.clear();
+        closed = true;
+        writer.shutdown();
+    }
+
+    private void append(int stream, int length, long hash, NumberleEvent event) throws IOException {
+        if (closed) {
+            return;
+        }
+        GuessResult result = event.getResult();
+        switch (event.getType()) {
+            case GAME_STARTED: {
+                ByteBuffer out = reserve(4 + 1 + 8);
+                int payload = out.position() + RECORD_HEADER_SIZE;
+                out.putInt(payload, event.getTargetIndex());
+                out.put(payload + 4, (byte) length);
+                out.putLong(payload + 5, hash);
+                finish(out, GAME_STARTED, 13, stream, event.getTimestamp());
+                break;
+            }
+            case GUESS_SCORED: {
+                String guess = result.getGuess();
+                ByteBuffer out = reserve(4 + guess.length());
+                int payload = out.position() + RECORD_HEADER_SIZE;
+                out.putInt(payload, result.getCode());
+                for (int i = 0; i < guess.length(); i++) {
+                    out.put(payload + 4 + i, (byte) guess.charAt(i));
+                }
+                finish(out, GUESS_SCORED, 4 + guess.length(), stream, event.getTimestamp());
+                break;
+            }
+            case GAME_OVER: {
+                ByteBuffer out = reserve(2);
+                int payload = out.position() + RECORD_HEADER_SIZE;
+                out.put(payload, (byte) (event.isWon() ? 1 : 0));
+                out.put(payload + 1, (byte) (result == null ? 0 : result.getAttempt()));
+                finish(out, GAME_OVER, 2, stream, event.getTimestamp());
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the current segment with room for a record of {@code payload} bytes at its
+     * position, rolling to a new segment if needed.
+     */
+    private ByteBuffer reserve(int payload) throws IOException {
+        if (segment.remaining() < RECORD_HEADER_SIZE + payload) {
+            segment.force();
+            roll();
+        }
+        return segment;
+    }
+
+    private void finish(ByteBuffer out, byte type, int payload, int stream, long timestamp) {
+        int start = out.position();
+        out.put(start + 1, (byte) payload);
+        out.putInt(start + 4, stream);
+        out.putLong(start + 8, timestamp);
+        out.put(start, type); // Last, so a reader never sees a record without its payload
+        out.position(start + RECORD_HEADER_SIZE + payload);
+        dirty = true;
+        records++;
+    }
+
+    private void roll() throws IOException {
+        Path file = directory.resolve(String.format("%016d%s", ++sequence, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0).putInt(segmentSize).putInt(0);
+        dirty = true;
+    }
+
+    private void commit() {
+        if (dirty) {
+            segment.force();
+            dirty = false;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+// GameMetrics.java
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the game, cheap enough to leave on in production.
+ * <p>
+ * Counters are {@link LongAdder}s and latencies go into {@link LatencyHistogram}s, so recording
+ * from many games at once never serialises on a shared cache line. Models record into a
+ * registry only when one is attached with {@link NumberleModel#setMetrics}; without one the
+ * instrumentation costs a null check. Readers pull a {@link Snapshot}, either directly or from
+ * the local HTTP endpoint of {@link MetricsEndpoint}.
+ * <p>
+ * The process-wide registry returned by {@link #shared()} is attached to every new model when
+ * the system property {@code numberle.metrics} is {@code true}.
+ */
+public final class GameMetrics {
+    public static final String ENABLED_PROPERTY = "numberle.metrics";
+
+    private static final GameMetrics SHARED = new GameMetrics();
+
+    private final long createdNanos = System.nanoTime();
+    private final LongAdder inputs = new LongAdder();
+    private final LongAdder invalidInputs = new LongAdder();
+    private final LongAdder guesses = new LongAdder();
+    private final LongAdder gamesStarted = new LongAdder();
+    private final LongAdder gamesWon = new LongAdder();
+    private final LongAdder gamesLost = new LongAdder();
+    private final LatencyHistogram inputLatency = new LatencyHistogram();
+    private final LatencyHistogram gameDuration = new LatencyHistogram();
+
+    public static GameMetrics shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the shared registry if metrics are switched on for this process, otherwise null.
+     */
+    public static GameMetrics sharedIfEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY) ? SHARED : null;
+    }
+
+    void gameStarted() {
+        gamesStarted.increment();
+    }
+
+    /**
+     * Records one call of {@code processInput}.
+     *
+     * @param scored whether the input was a valid equation and used up a guess
+     */
+    void inputProcessed(boolean scored, long nanos) {
+        inputs.increment();
+        if (scored) {
+            guesses.increment();
+        } else {
+            invalidInputs.increment();
+        }
+        inputLatency.record(nanos);
+    }
+
+    void gameOver(boolean won, long nanos) {
+        (won ? gamesWon : gamesLost).increment();
+        gameDuration.record(nanos);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Values of every metric at one point in time, with the usual derived ratios.
+     */
+    public static final class Snapshot {
+        private final long uptimeNanos;
+        private final long inputs;
+        private final long invalidInputs;
+        private final long guesses;
+        private final long gamesStarted;
+        private final long gamesWon;
+        private final long gamesLost;
+        private final LatencyHistogram.Snapshot inputLatency;
+        private final LatencyHistogram.Snapshot gameDuration;
+
+        private Snapshot(GameMetrics metrics) {
+            uptimeNanos = System.nanoTime() - metrics.createdNanos;
+            inputs = metrics.inputs.sum();
+            invalidInputs = metrics.invalidInputs.sum();
+            guesses = metrics.guesses.sum();
+            gamesStarted = metrics.gamesStarted.sum();
+            gamesWon = metrics.gamesWon.sum();
+            gamesLost = metrics.gamesLost.sum();
+            inputLatency = metrics.inputLatency.snapshot();
+            gameDuration = metrics.gameDuration.snapshot();
+        }
+
+        public long getInputs() {
+            return inputs;
+        }
+
+        public long getInvalidInputs() {
+            return invalidInputs;
+        }
+
+        public long getGuesses() {
+            return guesses;
+        }
+
+        public long getGamesStarted() {
+            return gamesStarted;
+        }
+
+        public long getGamesWon() {
+            return gamesWon;
+        }
+
+        public long getGamesLost() {
+            return gamesLost;
+        }
+
+        public double getGuessesPerSecond() {
+            return guesses * 1e9 / Math.max(1, uptimeNanos);
+        }
+
+        public double getInvalidInputRatio() {
+            return inputs == 0 ? 0 : (double) invalidInputs / inputs;
+        }
+
+        public double getWinRate() {
+            long finished = gamesWon + gamesLost;
+            return finished == 0 ? 0 : (double) gamesWon / finished;
+        }
+
+        /** Latency of {@code processInput} in nanoseconds. */
+        public LatencyHistogram.Snapshot getInputLatency() {
+            return inputLatency;
+        }
+
+        /** Time from the start of a game to its end in nanoseconds. */
+        public LatencyHistogram.Snapshot getGameDuration() {
+            return gameDuration;
+        }
+
+        /**
+         * Formats the snapshot as one {@code name value} pair per line, in the Prometheus text
+         * format.
+         */
+        public String toText() {
+            StringBuilder text = new StringBuilder(1024);
+            line(text, "numberle_uptime_seconds", uptimeNanos / 1e9);
+            line(text, "numberle_inputs_total", inputs);
+            line(text, "numberle_invalid_inputs_total", invalidInputs);
+            line(text, "numberle_guesses_total", guesses);
+            line(text, "numberle_games_started_total", gamesStarted);
+            line(text, "numberle_games_won_total", gamesWon);
+            line(text, "numberle_games_lost_total", gamesLost);
+            line(text, "numberle_guesses_per_second", getGuessesPerSecond());
+            line(text, "numberle_invalid_input_ratio", getInvalidInputRatio());
+            line(text, "numberle_win_rate", getWinRate());
+            histogram(text, "numberle_input_latency_seconds", inputLatency);
+            histogram(text, "numberle_game_duration_seconds", gameDuration);
+            return text.toString();
+        }
+
+        private static void histogram(StringBuilder text, String name, LatencyHistogram.Snapshot histogram) {
+            double[] quantiles = {0.5, 0.9, 0.99, 0.999};
+            for (double quantile : quantiles) {
+                line(text, name + "{quantile=\"" + quantile + "\"}", seconds(histogram.getQuantile(quantile)));
+            }
+            line(text, name + "_max", seconds(histogram.getMax()));
+            line(text, name + "_mean", histogram.getMean() / TimeUnit.SECONDS.toNanos(1));
+            line(text, name + "_count", histogram.getCount());
+        }
+
+        private static double seconds(long nanos) {
+            return nanos / 1e9;
+        }
+
+        private static void line(StringBuilder text, String name, double value) {
+            text.append(name).append(' ').append(String.format(Locale.ROOT, "%.9g", value)).append('\n');
+        }
+
+        private static void line(StringBuilder text, String name, long value) {
+            text.append(name).append(' ').append(value).append('\n');
+        }
+
+        @Override
+        public String toString() {
+            return toText();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+// GameServer.java
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Hosts many independent games behind a line-based protocol on localhost.
+ * <p>
+ * Each player gets a {@link GameSession}; all sessions share one memory-mapped dictionary, so
+ * the per-player cost is a few dozen bytes and a single node comfortably holds the target of at
+ * least 50,000 concurrent sessions. Sessions live in a {@link ConcurrentHashMap} and update
+ * their own state lock-free, so connections never contend on a global lock. Sessions idle for
+ * longer than the timeout are evicted by a background sweep.
+ * <p>
+ * Every connection is served by its own virtual thread when the JDK provides them (21 and
+ * later) and by a pooled platform thread otherwise. Commands, one per line:
+ * <pre>
+ *   NEW                  -> OK id length attempts
+ *   GUESS id equation    -> FEEDBACK code states remaining PLAYING|WON|LOST
+ *   TARGET id            -> TARGET equation   (only once the game is over)
+ *   QUIT id              -> OK
+ *   PING                 -> PONG
+ * </pre>
+ * Failures are answered with {@code ERROR reason}. Responses are flushed once the client has no
+ * further commands buffered, so clients may pipeline requests.
+ */
+public class GameServer {
+    public static final int DEFAULT_PORT = 7070;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final EquationDictionary dictionary;
+    private final int port;
+    private final long idleTimeoutMillis;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ExecutorService connections = newConnectionExecutor();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "session-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile ServerSocket serverSocket;
+
+    public GameServer(EquationDictionary dictionary, int port, long idleTimeoutMillis) {
+        this(dictionary, port, idleTimeoutMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a server that reads session access times from {@code clock}, in milliseconds.
+     */
+    GameServer(EquationDictionary dictionary, int port, long idleTimeoutMillis, LongSupplier clock) {
+        this.dictionary = dictionary;
+        this.port = port;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Accepts connections until {@link #stop()} is called.
+     */
+    public void serve() throws IOException {
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        long sweepInterval = Math.max(1000, idleTimeoutMillis / 4);
+        sweeper.scheduleWithFixedDelay(this::evictIdleSessions, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+        System.out.println("Numberle server listening on " + serverSocket.getLocalSocketAddress());
+        try {
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> handle(socket));
+            }
+        } catch (IOException e) {
+            if (!serverSocket.isClosed()) {
+                throw e;
+            }
+        } finally {
+            stop();
+        }
+    }
+
+    public void stop() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        sweeper.shutdownNow();
+        connections.shutdownNow();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the session with the given id, or null if there is none.
+     */
+    GameSession getSession(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Removes every session that has not been used within the idle timeout.
+     */
+    void evictIdleSessions() {
+        long cutoff = clock.getAsLong() - idleTimeoutMillis;
+        sessions.values().removeIf(session -> session.getLastAccess() < cutoff);
+    }
+
+    private void handle(Socket socket) {
+        // Evaluators keep scratch state, so each connection gets its own
+        EquationEvaluator evaluator = new EquationEvaluator();
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.write(execute(line.trim(), evaluator));
+                out.write('\n');
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // The client went away; its sessions stay until they are evicted
+        }
+    }
+
+    String execute(String command, EquationEvaluator evaluator) {
+        String[] parts = command.split(" ", 3);
+        switch (parts[0].toUpperCase()) {
+            case "NEW": {
+                GameSession session = new GameSession(nextId.getAndIncrement(), dictionary,
+                        ThreadLocalRandom.current().nextInt(dictionary.size()), clock);
+                sessions.put(session.getId(), session);
+                return "OK " + session.getId() + " " + dictionary.lengthOf(session.getTargetIndex())
+                        + " " + INumberleModel.MAX_ATTEMPTS;
+            }
+            case "GUESS": {
+                if (parts.length < 3) return "ERROR usage: GUESS id equation";
+                GameSession session = find(parts[1]);
+                if (session == null) return "ERROR unknown session";
+                String guess = parts[2];
+                if (guess.length() != dictionary.lengthOf(session.getTargetIndex())) return "ERROR invalid length";
+                int status = evaluator.checkEquation(guess);
+                if (status != EquationEvaluator.OK) return "ERROR " + EquationEvaluator.describe(status);
+                long outcome = session.guess(guess);
+                if (outcome < 0) return "ERROR game over";
+                int code = GameSession.codeOf(outcome);
+                StringBuilder states = new StringBuilder(guess.length());
+                for (int i = 0; i < guess.length(); i++) {
+                    states.append(Feedback.state(code, i));
+                }
+                return "FEEDBACK " + code + " " + states + " " + GameSession.attemptsOf(outcome) + " "
+                        + statusName(GameSession.statusOf(outcome));
+            }
+            case "TARGET": {
+                GameSession session = parts.length > 1 ? find(parts[1]) : null;
+                if (session == null) return "ERROR unknown session";
+                if (session.getStatus() == GameSession.PLAYING) return "ERROR game in progress";
+                return "TARGET " + session.getTargetEquation();
+            }
+            case "QUIT": {
+                if (parts.length > 1) {
+                    try {
+                        sessions.remove(Long.parseLong(parts[1]));
+                    } catch (NumberFormatException e) {
+                        return "ERROR bad session id";
+                    }
+                }
+                return "OK";
+            }
+            case "PING":
+                return "PONG";
+            default:
+                return "ERROR unknown command";
+        }
+    }
+
+    private GameSession find(String id) {
+        try {
+            return sessions.get(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String statusName(int status) {
+        switch (status) {
+            case GameSession.WON:
+                return "WON";
+            case GameSession.LOST:
+                return "LOST";
+            default:
+                return "PLAYING";
+        }
+    }
+
+    /**
+     * Uses a virtual thread per connection where available, without requiring JDK 21 to build.
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int length = args.length > 1 ? Integer.parseInt(args[1]) : INumberleModel.DEFAULT_EQUATION_LENGTH;
+        new GameServer(EquationDictionary.forLength(length), port, DEFAULT_IDLE_TIMEOUT_MILLIS).serve();
+    }
+}
@@ -0,0 +1,127 @@
+// GameSession.java
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * One player's game on the server: a few dozen bytes instead of a full {@link NumberleModel}.
+ * <p>
+ * The whole game state (target index, remaining attempts and the win flag) is packed into one
+ * {@code long} that is updated with compare-and-set, so concurrent requests for the same
+ * session never block each other and the rules match {@link NumberleModel#processInput}: an
+ * invalid guess costs nothing, a wrong one costs an attempt and the target wins the game.
+ * A guess returns the state it committed, so a reply never picks up the effect of a concurrent
+ * guess, and it is scored against the mapped dictionary entry without allocating.
+ */
+public final class GameSession {
+    public static final int PLAYING = 0;
+    public static final int WON = 1;
+    public static final int LOST = 2;
+
+    private static final long TARGET_MASK = 0xFFFFFFFFL;
+    private static final int ATTEMPTS_SHIFT = 32;
+    private static final long WON_BIT = 1L << 40;
+
+    private final long id;
+    private final EquationDictionary dictionary;
+    private final AtomicLong state;
+    private final LongSupplier clock;
+    private volatile long lastAccess;
+
+    public GameSession(long id, EquationDictionary dictionary, int targetIndex) {
+        this(id, dictionary, targetIndex, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a session whose access times are read from {@code clock}, in milliseconds.
+     */
+    GameSession(long id, EquationDictionary dictionary, int targetIndex, LongSupplier clock) {
+        this.id = id;
+        this.dictionary = dictionary;
+        this.state = new AtomicLong(pack(targetIndex, INumberleModel.MAX_ATTEMPTS, false));
+        this.clock = clock;
+        touch();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    public void touch() {
+        lastAccess = clock.getAsLong();
+    }
+
+    public int getTargetIndex() {
+        return (int) (state.get() & TARGET_MASK);
+    }
+
+    public String getTargetEquation() {
+        return dictionary.get(getTargetIndex());
+    }
+
+    public int getRemainingAttempts() {
+        return (int) (state.get() >>> ATTEMPTS_SHIFT & 0xFF);
+    }
+
+    public int getStatus() {
+        return status(state.get());
+    }
+
+    /**
+     * Scores a guess that has already passed validation and records it.
+     *
+     * @return the outcome, to read with {@link #codeOf}, {@link #attemptsOf} and
+     *         {@link #statusOf}, or -1 if the game was already over
+     */
+    public long guess(CharSequence guess) {
+        touch();
+        while (true) {
+            long current = state.get();
+            if (status(current) != PLAYING) {
+                return -1;
+            }
+            int target = (int) (current & TARGET_MASK);
+            int attempts = (int) (current >>> ATTEMPTS_SHIFT & 0xFF);
+            int code = dictionary.score(guess, target);
+            boolean exact = code == Feedback.allCorrect(guess.length());
+            long next = pack(target, exact ? attempts : attempts - 1, exact);
+            if (state.compareAndSet(current, next)) {
+                // The committed state, with the feedback code where the target index was
+                return next & ~TARGET_MASK | code;
+            }
+        }
+    }
+
+    /**
+     * Returns the feedback code of a guess outcome.
+     */
+    public static int codeOf(long outcome) {
+        return (int) (outcome & TARGET_MASK);
+    }
+
+    /**
+     * Returns the attempts left after the guess of an outcome.
+     */
+    public static int attemptsOf(long outcome) {
+        return (int) (outcome >>> ATTEMPTS_SHIFT & 0xFF);
+    }
+
+    /**
+     * Returns {@link #PLAYING}, {@link #WON} or {@link #LOST} after the guess of an outcome.
+     */
+    public static int statusOf(long outcome) {
+        return status(outcome);
+    }
+
+    private static long pack(int target, int attempts, boolean won) {
+        return (target & TARGET_MASK) | (long) attempts << ATTEMPTS_SHIFT | (won ? WON_BIT : 0);
+    }
+
+    private static int status(long state) {
+        if ((state & WON_BIT) != 0) return WON;
+        return (state >>> ATTEMPTS_SHIFT & 0xFF) == 0 ? LOST : PLAYING;
+    }
+}
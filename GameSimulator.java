@@ -0,0 +1,314 @@
+// GameSimulator.java
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays large numbers of games without a user interface, for balance and regression testing.
+ * <p>
+ * One worker per thread owns a {@link NumberleModel}, a {@link NumberleController} and a
+ * strategy, and reuses them for every game it plays, so the dictionary and candidate structures
+ * are set up once per worker rather than once per game. Workers claim games in batches from a
+ * shared counter and keep their statistics privately until the run ends, so they never contend
+ * on anything but that counter. Nothing is printed per guess.
+ * <p>
+ * A strategy is any {@link NumberleSolver}: {@code random} picks a random consistent equation,
+ * {@code solver} is the {@link EntropySolver}, {@code tree=<file>} plays a {@link DecisionTree}
+ * built by {@link DecisionTreeBuilder} and {@code script=<file>} replays a {@link ScriptedSolver}
+ * script. Solver searches run on the simulation's own pool.
+ * <p>
+ * With a seed, game number {@code n} of a run plays the target of seed {@code seed + n} whichever
+ * worker claims it and the strategy is reset with that seed, so a run reports the same counts
+ * every time and on any number of threads, {@code random} included.
+ */
+public class GameSimulator {
+    /** Guesses submitted per game, including rejected ones, before a game is abandoned. */
+    public static final int MAX_TURNS = 4 * INumberleModel.MAX_ATTEMPTS;
+
+    private static final int GAMES_PER_CLAIM = 64;
+
+    /**
+     * Creates one strategy instance per worker.
+     */
+    public interface StrategyFactory {
+        NumberleSolver create(EquationDictionary dictionary, ForkJoinPool pool) throws IOException;
+    }
+
+    private final EquationDictionary dictionary;
+    private final StrategyFactory strategy;
+    private final int threads;
+    private GameMetrics metrics;
+    private GameJournal journal;
+    private boolean dictionaryClosed;
+    private boolean adversarial;
+    private boolean hardMode;
+    private DifficultyIndex.Band difficulty;
+    private Long seed;
+
+    public GameSimulator(EquationDictionary dictionary, StrategyFactory strategy, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed");
+        }
+        this.dictionary = dictionary;
+        this.strategy = strategy;
+        this.threads = threads;
+    }
+
+    /**
+     * Parses a strategy name as accepted on the command line.
+     */
+    public static StrategyFactory strategy(String spec) {
+        if (spec.equals("random")) {
+            return (dictionary, pool) -> new RandomSolver(dictionary);
+        }
+        if (spec.equals("solver")) {
+            return (dictionary, pool) -> new EntropySolver(dictionary,
+                    dictionary.size() <= EntropySolver.MATRIX_LIMIT ? FeedbackMatrix.forDictionary(dictionary) : null, pool);
+        }
+        if (spec.startsWith("tree=")) {
+            Path file = Paths.get(spec.substring("tree=".length()));
+            StrategyFactory fallback = strategy("solver");
+            return (dictionary, pool) -> new DecisionTreeSolver(DecisionTree.open(file, dictionary), dictionary,
+                    fallback.create(dictionary, pool));
+        }
+        if (spec.startsWith("script=")) {
+            String file = spec.substring("script=".length());
+            return (dictionary, pool) -> new ScriptedSolver(ScriptedSolver.readScript(Paths.get(file)), dictionary);
+        }
+        throw new IllegalArgumentException("Unknown strategy: " + spec + " (expected random, solver, tree=<file> or script=<file>)");
+    }
+
+    /**
+     * Records every simulated game in {@code metrics}, or in nothing if it is null.
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Records every simulated game in {@code journal}, or nowhere if it is null.
+     */
+    public void setJournal(GameJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Plays dictionary-closed games, see {@link INumberleModel#setDictionaryClosed}.
+     */
+    public void setDictionaryClosed(boolean dictionaryClosed) {
+        this.dictionaryClosed = dictionaryClosed;
+    }
+
+    /**
+     * Plays adversarial games, see {@link INumberleModel#setAdversarial}.
+     */
+    public void setAdversarial(boolean adversarial) {
+        this.adversarial = adversarial;
+    }
+
+    /**
+     * Plays hard-mode games, see {@link INumberleModel#setHardMode}.
+     */
+    public void setHardMode(boolean hardMode) {
+        this.hardMode = hardMode;
+    }
+
+    /**
+     * Draws targets from a difficulty band, see {@link INumberleModel#setDifficulty}.
+     */
+    public void setDifficulty(DifficultyIndex.Band difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    /**
+     * Derives every game's target from {@code seed}, or draws targets at random if it is null.
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Plays {@code games} games and returns the combined statistics.
+     */
+    public Report run(long games) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Worker> workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                workers.add(new Worker(strategy.create(dictionary, pool)));
+            }
+            AtomicLong claimed = new AtomicLong();
+            long start = System.nanoTime();
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(threads);
+            for (Worker worker : workers) {
+                tasks.add(pool.submit(() -> worker.play(claimed, games)));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+            Report report = new Report(System.nanoTime() - start);
+            for (Worker worker : workers) {
+                report.add(worker);
+            }
+            return report;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private final class Worker {
+        private final NumberleModel model = new NumberleModel(dictionary);
+        private final NumberleController controller = new NumberleController(model);
+        private final long[] wins = new long[INumberleModel.MAX_ATTEMPTS + 1]; // by attempts taken
+        private long losses;
+        private long abandoned;
+        private long rejected;
+
+        Worker(NumberleSolver solver) {
+            controller.setSolver(solver);
+            model.setMetrics(metrics);
+            model.setDictionaryClosed(dictionaryClosed);
+            model.setAdversarial(adversarial);
+            model.setHardMode(hardMode);
+            model.setDifficulty(difficulty);
+            if (journal != null) {
+                journal.attach(model);
+            }
+        }
+
+        void play(AtomicLong claimed, long games) {
+            long first;
+            while ((first = claimed.getAndAdd(GAMES_PER_CLAIM)) < games) {
+                long last = Math.min(games, first + GAMES_PER_CLAIM);
+                for (long game = first; game < last; game++) {
+                    playOne(game);
+                }
+            }
+        }
+
+        private void playOne(long game) {
+            if (seed != null) {
+                controller.startNewGame(seed + game);
+            } else {
+                controller.startNewGame();
+            }
+            for (int turn = 0; turn < MAX_TURNS && !controller.isGameOver(); turn++) {
+                controller.playSolverTurn();
+                if (controller.getInputStatus() != EquationEvaluator.OK) {
+                    rejected++;
+                }
+            }
+            if (controller.isGameWon()) {
+                wins[controller.getLastResult().getAttempt()]++;
+            } else if (controller.isGameOver()) {
+                losses++;
+            } else {
+                abandoned++;
+            }
+        }
+    }
+
+    /**
+     * Outcome of a simulation run.
+     */
+    public static final class Report {
+        private final long nanos;
+        private final long[] wins = new long[INumberleModel.MAX_ATTEMPTS + 1];
+        private long losses;
+        private long abandoned;
+        private long rejected;
+
+        private Report(long nanos) {
+            this.nanos = nanos;
+        }
+
+        private void add(Worker worker) {
+            for (int i = 0; i < wins.length; i++) {
+                wins[i] += worker.wins[i];
+            }
+            losses += worker.losses;
+            abandoned += worker.abandoned;
+            rejected += worker.rejected;
+        }
+
+        public long getGames() {
+            long games = losses + abandoned;
+            for (long count : wins) {
+                games += count;
+            }
+            return games;
+        }
+
+        /**
+         * Returns the number of games won with exactly {@code attempts} guesses.
+         */
+        public long getWins(int attempts) {
+            return wins[attempts];
+        }
+
+        public long getWins() {
+            return getGames() - losses - abandoned;
+        }
+
+        public long getLosses() {
+            return losses;
+        }
+
+        /**
+         * Returns the number of games stopped after {@link GameSimulator#MAX_TURNS} mostly rejected guesses.
+         */
+        public long getAbandoned() {
+            return abandoned;
+        }
+
+        public long getRejectedGuesses() {
+            return rejected;
+        }
+
+        public double getWinRate() {
+            long games = getGames();
+            return games == 0 ? 0 : (double) getWins() / games;
+        }
+
+        public double getGamesPerSecond() {
+            return getGames() * 1e9 / Math.max(1, nanos);
+        }
+
+        /**
+         * Returns the mean number of guesses over the games that were won.
+         */
+        public double getAverageAttempts() {
+            long total = 0;
+            for (int i = 1; i < wins.length; i++) {
+                total += i * wins[i];
+            }
+            long won = getWins();
+            return won == 0 ? 0 : (double) total / won;
+        }
+
+        public void print(PrintStream out) {
+            long games = getGames();
+            out.printf("Games: %d in %.2f s (%.0f games/s)%n", games, nanos / 1e9, getGamesPerSecond());
+            out.printf("Win rate: %.2f%%, average guesses to win: %.3f%n", 100 * getWinRate(), getAverageAttempts());
+            out.println("Attempt distribution:");
+            for (int i = 1; i < wins.length; i++) {
+                out.printf("  %d: %10d  %6.2f%%%n", i, wins[i], percent(wins[i], games));
+            }
+            out.printf("  lost: %7d  %6.2f%%%n", losses, percent(losses, games));
+            if (abandoned > 0) {
+                out.printf("  abandoned: %d%n", abandoned);
+            }
+            out.println("Rejected guesses: " + rejected);
+        }
+
+        private static double percent(long count, long games) {
+            return games == 0 ? 0 : 100.0 * count / games;
+        }
+    }
+}
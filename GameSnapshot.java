@@ -0,0 +1,186 @@
+// GameSnapshot.java
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact binary form of one game in progress, for moving a game out of memory and back, e.g.
+ * evicting an idle session to disk or handing it to another node.
+ * <p>
+ * A snapshot holds only what cannot be recomputed: the target as a dictionary index (-1 while
+ * an adversarial game has not decided it), the dictionary it indexes (by content hash prefix),
+ * the guesses so far and whether the game was won. Feedback, remaining attempts and candidates
+ * all follow from those. Guesses are packed two symbols per byte as indices into
+ * {@link Feedback#ALPHABET}, padded with {@code 0xF}, and there is always room for
+ * {@link INumberleModel#MAX_ATTEMPTS} of them, so every snapshot of a given equation length has
+ * the same size and layout:
+ * <pre>
+ *    0  magic (short), version (byte), equation length (byte)
+ *    4  target index (int)
+ *    8  dictionary hash prefix (long)
+ *   16  guess count (byte), flags (byte, bit 0: won)
+ *   18  guesses, (length + 1) / 2 bytes each
+ * </pre>
+ * That is 42 bytes for the default seven-symbol equations.
+ */
+public final class GameSnapshot {
+    public static final short MAGIC = 0x4E53; // "NS"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 18;
+
+    private static final int WON_FLAG = 1;
+    private static final int PADDING = 0xF;
+
+    private final int equationLength;
+    private final int targetIndex;
+    private final long dictionaryHash;
+    private final List<String> guesses;
+    private final boolean won;
+
+    public GameSnapshot(int equationLength, int targetIndex, long dictionaryHash, List<String> guesses, boolean won) {
+        if (equationLength < 1 || equationLength > Feedback.MAX_LENGTH) {
+            throw new IllegalArgumentException("Unsupported equation length: " + equationLength);
+        }
+        if (targetIndex < -1) {
+            throw new IllegalArgumentException("Bad target index: " + targetIndex);
+        }
+        if (guesses.size() > INumberleModel.MAX_ATTEMPTS || won && guesses.isEmpty()) {
+            throw new IllegalArgumentException("Impossible game: " + guesses.size() + " guesses, won " + won);
+        }
+        for (String guess : guesses) {
+            if (guess.length() != equationLength) {
+                throw new IllegalArgumentException("Guess of the wrong length: " + guess);
+            }
+            for (int i = 0; i < guess.length(); i++) {
+                if (Feedback.symbolOf(guess.charAt(i)) < 0) {
+                    throw new IllegalArgumentException("Guess with a non-equation symbol: " + guess);
+                }
+            }
+        }
+        this.equationLength = equationLength;
+        this.targetIndex = targetIndex;
+        this.dictionaryHash = dictionaryHash;
+        this.guesses = Collections.unmodifiableList(Arrays.asList(guesses.toArray(new String[0])));
+        this.won = won;
+    }
+
+    /**
+     * Returns the size in bytes of every snapshot of a game with the given equation length.
+     */
+    public static int sizeFor(int equationLength) {
+        return HEADER_SIZE + INumberleModel.MAX_ATTEMPTS * ((equationLength + 1) / 2);
+    }
+
+    public int size() {
+        return sizeFor(equationLength);
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer out = ByteBuffer.allocate(size());
+        writeTo(out);
+        return out.array();
+    }
+
+    /**
+     * Writes the snapshot at the buffer's position and advances it by {@link #size()} bytes.
+     */
+    public void writeTo(ByteBuffer out) {
+        out.putShort(MAGIC).put((byte) VERSION).put((byte) equationLength)
+                .putInt(targetIndex)
+                .putLong(dictionaryHash)
+                .put((byte) guesses.size()).put((byte) (won ? WON_FLAG : 0));
+        int slot = (equationLength + 1) / 2;
+        for (int attempt = 0; attempt < INumberleModel.MAX_ATTEMPTS; attempt++) {
+            String guess = attempt < guesses.size() ? guesses.get(attempt) : null;
+            for (int i = 0; i < slot; i++) {
+                out.put((byte) (nibble(guess, 2 * i) << 4 | nibble(guess, 2 * i + 1)));
+            }
+        }
+    }
+
+    public static GameSnapshot fromBytes(byte[] bytes) {
+        return readFrom(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads a snapshot at the buffer's position and advances past it.
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid snapshot
+     */
+    public static GameSnapshot readFrom(ByteBuffer in) {
+        try {
+            if (in.getShort() != MAGIC) {
+                throw new IllegalArgumentException("Not a game snapshot");
+            }
+            int version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot version " + version);
+            }
+            int equationLength = in.get();
+            if (equationLength < 1 || equationLength > Feedback.MAX_LENGTH) {
+                // Checked before the guesses are sized from it
+                throw new IllegalArgumentException("Unsupported equation length: " + equationLength);
+            }
+            int targetIndex = in.getInt();
+            long dictionaryHash = in.getLong();
+            int count = in.get();
+            boolean won = (in.get() & WON_FLAG) != 0;
+            if (count < 0 || count > INumberleModel.MAX_ATTEMPTS) {
+                throw new IllegalArgumentException("Impossible guess count " + count);
+            }
+            int slot = (equationLength + 1) / 2;
+            String[] guesses = new String[count];
+            char[] guess = new char[slot * 2];
+            for (int attempt = 0; attempt < INumberleModel.MAX_ATTEMPTS; attempt++) {
+                for (int i = 0; i < slot; i++) {
+                    int packed = in.get() & 0xFF;
+                    guess[2 * i] = symbol(packed >>> 4);
+                    guess[2 * i + 1] = symbol(packed & 0xF);
+                }
+                if (attempt < count) {
+                    guesses[attempt] = new String(guess, 0, equationLength);
+                }
+            }
+            return new GameSnapshot(equationLength, targetIndex, dictionaryHash, Arrays.asList(guesses), won);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated game snapshot", e);
+        }
+    }
+
+    private static int nibble(String guess, int position) {
+        return guess == null || position >= guess.length() ? PADDING : Feedback.symbolOf(guess.charAt(position));
+    }
+
+    private static char symbol(int nibble) {
+        // Padding decodes to a character the constructor rejects if it ends up inside a guess
+        return nibble < Feedback.ALPHABET.length() ? Feedback.ALPHABET.charAt(nibble) : '?';
+    }
+
+    public int getEquationLength() {
+        return equationLength;
+    }
+
+    public int getTargetIndex() {
+        return targetIndex;
+    }
+
+    public long getDictionaryHash() {
+        return dictionaryHash;
+    }
+
+    public List<String> getGuesses() {
+        return guesses;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    @Override
+    public String toString() {
+        return "GameSnapshot{length=" + equationLength + ", target=" + targetIndex + ", guesses=" + guesses
+                + ", won=" + won + "}";
+    }
+}
@@ -0,0 +1,53 @@
+// GuessResult.java
+
+/**
+ * Immutable result of scoring one guess: the guess itself, its attempt number within the game
+ * and the packed {@link Feedback} code.
+ */
+public final class GuessResult {
+    private final int attempt;
+    private final String guess;
+    private final int code;
+
+    public GuessResult(int attempt, String guess, int code) {
+        this.attempt = attempt;
+        this.guess = guess;
+        this.code = code;
+    }
+
+    /**
+     * Returns the 1-based number of this guess within its game.
+     */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public String getGuess() {
+        return guess;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public int length() {
+        return guess.length();
+    }
+
+    public int getState(int position) {
+        return Feedback.state(code, position);
+    }
+
+    public boolean isCorrect() {
+        return code == Feedback.allCorrect(guess.length());
+    }
+
+    public String describe() {
+        return Feedback.describe(guess, code);
+    }
+
+    @Override
+    public String toString() {
+        return "GuessResult{attempt=" + attempt + ", guess=" + guess + ", code=" + code + "}";
+    }
+}
@@ -0,0 +1,120 @@
+// HintConstraints.java
+import java.util.Arrays;
+
+/**
+ * Everything the feedback of a game has revealed so far, kept as bitmasks so that checking a
+ * guess against it is a few bitwise operations, for hard mode.
+ * <p>
+ * A guess respects the hints if every green symbol stays in place, every symbol that was green or
+ * orange is used at least as often as the feedback proved, no symbol is used more often than
+ * a grey occurrence allows, and no symbol returns to a position where it was scored orange or
+ * grey. Each position keeps the set of symbols still allowed there as bits over
+ * {@link Feedback#ALPHABET}. The minimum and maximum count of every symbol are 4-bit counters,
+ * as in {@link Feedback}, spread over two {@code long}s of 8-bit lanes, so a guess's counts are
+ * compared against all fifteen bounds at once: each lane computes {@code 16 + count - bound},
+ * which keeps bit 4 exactly when the count reaches the bound and cannot borrow from the next
+ * lane.
+ */
+public final class HintConstraints {
+    private static final long LOW_NIBBLES = 0x0F0F0F0F0F0F0F0FL;
+    private static final long GUARDS = 0x1010101010101010L;
+    private static final int ALL_SYMBOLS = (1 << Feedback.ALPHABET.length()) - 1;
+
+    private final int length;
+    private final int[] allowed; // per position, bit s set if ALPHABET symbol s may go there
+    private long minimum;        // 4-bit counters per symbol
+    private long maximum;
+
+    public HintConstraints(int length) {
+        if (length < 1 || length > Feedback.MAX_LENGTH) {
+            throw new IllegalArgumentException("Unsupported equation length: " + length);
+        }
+        this.length = length;
+        this.allowed = new int[length];
+        reset();
+    }
+
+    /**
+     * Forgets all hints.
+     */
+    public void reset() {
+        Arrays.fill(allowed, ALL_SYMBOLS);
+        minimum = 0;
+        maximum = -1L; // 15 of everything, as many as the longest guess can hold
+    }
+
+    /**
+     * Adds the hints revealed by {@code guess} being scored {@code code}.
+     */
+    public void add(CharSequence guess, int code) {
+        if (guess.length() != length) {
+            throw new IllegalArgumentException("Guess of the wrong length: " + guess);
+        }
+        long found = 0;  // Green and orange occurrences per symbol
+        long greyed = 0; // Symbols with a grey occurrence
+        for (int i = 0; i < length; i++) {
+            int symbol = Feedback.symbolOf(guess.charAt(i));
+            if (symbol < 0) {
+                throw new IllegalArgumentException("Guess with a non-equation symbol: " + guess);
+            }
+            int state = Feedback.state(code, i);
+            if (state == Feedback.CORRECT) {
+                allowed[i] = 1 << symbol;
+            } else {
+                allowed[i] &= ~(1 << symbol);
+            }
+            if (state == Feedback.ABSENT) {
+                greyed |= 0xFL << (symbol << 2);
+            } else {
+                found += 1L << (symbol << 2);
+            }
+        }
+        // Counters only grow towards the truth, so the tighter of the old and new bound wins
+        minimum = maxPerNibble(minimum, found);
+        // A grey occurrence caps its symbol at the green and orange ones
+        maximum = minPerNibble(maximum, found | ~greyed);
+    }
+
+    /**
+     * Returns whether {@code guess} respects every hint added so far. Symbols outside the
+     * equation alphabet never do.
+     */
+    public boolean allows(CharSequence guess) {
+        if (guess.length() != length) {
+            return false;
+        }
+        long counts = 0;
+        for (int i = 0; i < length; i++) {
+            int symbol = Feedback.symbolOf(guess.charAt(i));
+            if (symbol < 0 || (allowed[i] >>> symbol & 1) == 0) {
+                return false;
+            }
+            counts += 1L << (symbol << 2);
+        }
+        return atLeast(counts, minimum) && atLeast(maximum, counts);
+    }
+
+    /**
+     * Returns whether every 4-bit counter of {@code a} is at least the one of {@code b}.
+     */
+    private static boolean atLeast(long a, long b) {
+        return ((a & LOW_NIBBLES | GUARDS) - (b & LOW_NIBBLES) & GUARDS) == GUARDS
+                && ((a >>> 4 & LOW_NIBBLES | GUARDS) - (b >>> 4 & LOW_NIBBLES) & GUARDS) == GUARDS;
+    }
+
+    private static long maxPerNibble(long a, long b) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 4) {
+            result |= Math.max(a >>> shift & 0xF, b >>> shift & 0xF) << shift;
+        }
+        return result;
+    }
+
+    private static long minPerNibble(long a, long b) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 4) {
+            result |= Math.min(a >>> shift & 0xF, b >>> shift & 0xF) << shift;
+        }
+        return result;
+    }
+}
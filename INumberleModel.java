@@ -1,16 +1,90 @@
+import java.util.List;
+
 public interface INumberleModel {
     int MAX_ATTEMPTS = 6;
+    int DEFAULT_EQUATION_LENGTH = 7;
+    /** Input status for a guess of the wrong length or without exactly one '='. */
+    int INVALID_FORMAT = -1;
+    /** Input status for a true equation that is not in the dictionary, in dictionary-closed games. */
+    int NOT_IN_DICTIONARY = -2;
+    /** Input status for a guess that ignores feedback already given, in hard mode. */
+    int BREAKS_HINTS = -3;
     void loadEquations();
     void initialize();
+    /**
+     * Starts a game whose target is the dictionary equation at {@code targetIndex}. In
+     * adversarial mode a negative index starts a game whose target is decided as it goes;
+     * anywhere else it is an {@link IllegalArgumentException}.
+     */
+    void initialize(int targetIndex);
     boolean isGameOver();
     boolean isGameWon();
     String getTargetEquation();
     boolean processInput(String input);
     boolean isValidInput(String input);
     boolean isCorrectEquation(String input);
+    /**
+     * Returns why the last input was rejected: {@link #INVALID_FORMAT}, or a status of
+     * {@link EquationEvaluator} other than {@code OK}. Returns {@code OK} after a scored guess.
+     */
+    int getInputStatus();
     int evaluateExpression(String expression);
     StringBuilder getCurrentGuess();
     void updateGuess(String guess);
+    GuessResult getLastResult();
+    int getCandidateCount();
+    List<String> getCandidateSample(int limit);
+    int getEquationLength();
     int getRemainingAttempts();
+    /**
+     * Returns the number of boards every guess is played on: 1, or more for a
+     * {@link MultiBoardModel}.
+     */
+    int getBoardCount();
     void startNewGame();
+    /**
+     * Starts a game whose target is chosen by {@code seed}: with the same dictionary and
+     * difficulty, the same seed always gives the same target.
+     */
+    void startNewGame(long seed);
+    /**
+     * Encodes the game in progress as a {@link GameSnapshot}, a few dozen bytes.
+     */
+    byte[] snapshot();
+    /**
+     * Continues the game captured by {@link #snapshot()}, possibly in another model or process
+     * with the same dictionary. Events and metrics are not replayed, so subscribers see the
+     * game from its next guess on.
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid snapshot for this dictionary
+     */
+    void restore(byte[] snapshot);
+    /**
+     * Switches dictionary-closed validation on or off. While it is on, a guess is accepted if
+     * and only if it is an equation of the dictionary, looked up in an {@link EquationSet}
+     * instead of being evaluated.
+     */
+    void setDictionaryClosed(boolean closed);
+    /**
+     * Switches adversarial mode on or off for games started afterwards. An adversarial game does
+     * not fix its target up front: every guess gets the feedback that keeps the most candidates
+     * alive, and the target is only decided once a single equation is left or the game is lost.
+     */
+    void setAdversarial(boolean adversarial);
+    /**
+     * Switches hard mode on or off for games started afterwards. In hard mode every guess must
+     * respect the feedback revealed so far, as tracked by {@link HintConstraints}; other guesses
+     * are rejected with {@link #BREAKS_HINTS} and cost no attempt.
+     */
+    void setHardMode(boolean hardMode);
+    boolean isHardMode();
+    /**
+     * Draws the targets of games started afterwards from a {@link DifficultyIndex} band, or
+     * uniformly from the whole dictionary if {@code difficulty} is null, the default.
+     */
+    void setDifficulty(DifficultyIndex.Band difficulty);
+    DifficultyIndex.Band getDifficulty();
+    boolean isAdversarial();
+    boolean isDictionaryClosed();
+    NumberleEventBus getEventBus();
 }
\ No newline at end of file
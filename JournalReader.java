@@ -0,0 +1,216 @@
+// JournalReader.java
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Reads a {@link GameJournal} back, segment by segment and record by record.
+ * <p>
+ * Segments are mapped read-only and records are decoded in place; the only allocation per
+ * record is the guess string. {@link #replay} feeds the journal through fresh models, which
+ * re-validates and re-scores every recorded guess, for auditing and analytics.
+ */
+public final class JournalReader {
+    /**
+     * Receives the records of a journal in the order they were written.
+     */
+    public interface Visitor {
+        void gameStarted(int stream, long timestamp, int targetIndex, int length, long dictionaryHash) throws IOException;
+
+        void guessScored(int stream, long timestamp, String guess, int code) throws IOException;
+
+        void gameOver(int stream, long timestamp, boolean won, int attempts) throws IOException;
+    }
+
+    private final Path directory;
+
+    public JournalReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the segment files of the journal in {@code directory}, oldest first.
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(GameJournal.SEGMENT_SUFFIX))
+                    .sorted()
+                    .forEach(segments::add);
+        }
+        return segments;
+    }
+
+    static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - GameJournal.SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Passes every record of the journal to {@code visitor}.
+     *
+     * @return the number of records read
+     */
+    public long read(Visitor visitor) throws IOException {
+        long records = 0;
+        byte[] guess = new byte[Byte.MAX_VALUE];
+        for (Path file : segments(directory)) {
+            MappedByteBuffer segment;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (segment.limit() < GameJournal.SEGMENT_HEADER_SIZE || segment.getInt(0) != GameJournal.MAGIC
+                    || segment.getShort(4) != GameJournal.VERSION) {
+                throw new IOException("Not a journal segment: " + file);
+            }
+            int position = GameJournal.SEGMENT_HEADER_SIZE;
+            while (position + GameJournal.RECORD_HEADER_SIZE <= segment.limit()) {
+                byte type = segment.get(position);
+                if (type == 0) {
+                    break; // End of the written part of this segment
+                }
+                int size = segment.get(position + 1) & 0xFF;
+                int stream = segment.getInt(position + 4);
+                long timestamp = segment.getLong(position + 8);
+                int payload = position + GameJournal.RECORD_HEADER_SIZE;
+                switch (type) {
+                    case GameJournal.GAME_STARTED:
+                        visitor.gameStarted(stream, timestamp, segment.getInt(payload), segment.get(payload + 4),
+                                segment.getLong(payload + 5));
+                        break;
+                    case GameJournal.GUESS_SCORED:
+                        int length = size - 4;
+                        for (int i = 0; i < length; i++) {
+                            guess[i] = segment.get(payload + 4 + i);
+                        }
+                        visitor.guessScored(stream, timestamp, new String(guess, 0, length, StandardCharsets.US_ASCII),
+                                segment.getInt(payload));
+                        break;
+                    case GameJournal.GAME_OVER:
+                        visitor.gameOver(stream, timestamp, segment.get(payload) != 0, segment.get(payload + 1));
+                        break;
+                    default:
+                        throw new IOException("Unknown record type " + type + " in " + file + " at " + position);
+                }
+                records++;
+                position = payload + size;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Replays the journal through fresh models, one per recorded stream, and checks that every
+     * guess scores and every game ends exactly as recorded.
+     */
+    public ReplayReport replay() throws IOException {
+        Replayer replayer = new Replayer();
+        long start = System.nanoTime();
+        long records = read(replayer);
+        return new ReplayReport(records, replayer.games, replayer.mismatches, System.nanoTime() - start);
+    }
+
+    private static final class Replayer implements Visitor {
+        private final Map<Integer, NumberleModel> models = new HashMap<>();
+        private long games;
+        private long mismatches;
+
+        @Override
+        public void gameStarted(int stream, long timestamp, int targetIndex, int length, long dictionaryHash) throws IOException {
+            NumberleModel model = models.get(stream);
+            // Stream ids start again at 0 for every run appended to the directory, so a later run
+            // may reuse an id for games of another length
+            if (model == null || model.getEquationLength() != length
+                    || model.getDictionary().contentHashPrefix() != dictionaryHash) {
+                model = new NumberleModel(EquationDictionary.forLength(length));
+                model.setTrackingCandidates(false); // Replay only needs scores and outcomes
+                model.loadEquations();
+                models.put(stream, model);
+            }
+            if (model.getDictionary().contentHashPrefix() != dictionaryHash) {
+                throw new IOException("The journal was recorded with a different dictionary of length " + length);
+            }
+            model.setAdversarial(targetIndex < 0); // Adversarial games are journaled without a target
+            model.initialize(targetIndex);
+            games++;
+        }
+
+        @Override
+        public void guessScored(int stream, long timestamp, String guess, int code) {
+            NumberleModel model = models.get(stream);
+            GuessResult previous = model == null ? null : model.getLastResult();
+            if (model == null || model.isGameOver()) {
+                mismatches++;
+                return;
+            }
+            model.processInput(guess);
+            GuessResult result = model.getLastResult();
+            if (result == previous || result.getCode() != code) {
+                mismatches++;
+            }
+        }
+
+        @Override
+        public void gameOver(int stream, long timestamp, boolean won, int attempts) {
+            NumberleModel model = models.get(stream);
+            if (model == null || !model.isGameOver() || model.isGameWon() != won
+                    || model.getLastResult() == null || model.getLastResult().getAttempt() != attempts) {
+                mismatches++;
+            }
+        }
+    }
+
+    /**
+     * Outcome of a replay.
+     */
+    public static final class ReplayReport {
+        private final long records;
+        private final long games;
+        private final long mismatches;
+        private final long nanos;
+
+        private ReplayReport(long records, long games, long mismatches, long nanos) {
+            this.records = records;
+            this.games = games;
+            this.mismatches = mismatches;
+            this.nanos = nanos;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * Returns the number of records that the replayed models did not reproduce.
+         */
+        public long getMismatches() {
+            return mismatches;
+        }
+
+        public double getRecordsPerSecond() {
+            return records * 1e9 / Math.max(1, nanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Replayed %d records of %d games in %.2f s (%.0f records/s), %d mismatches",
+                    records, games, nanos / 1e9, getRecordsPerSecond(), mismatches);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+// Keypad.java
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * On-screen keyboard of equation symbols plus clear and enter keys, painted in one component
+ * from a byte of feedback state per key rather than built from buttons.
+ * <p>
+ * Colouring a key or pressing it repaints only that key, and key positions and the font are
+ * recomputed only when the keypad is resized. Keys are laid out on two rows of nine columns, the
+ * enter key taking two.
+ */
+public class Keypad extends JComponent {
+    private static final String[] KEYS = {"1", "2", "3", "4", "5", "6", "7", "8", "9",
+            "0", "+", "-", "*", "/", "=", "C", "Enter"};
+    private static final int PER_ROW = 9;
+    private static final int GAP = 5;
+    private static final Color KEY = Color.LIGHT_GRAY;
+    private static final Color PRESSED = Color.GRAY;
+    private static final byte UNUSED = -1;
+
+    private final byte[] states = new byte[KEYS.length]; // Feedback state per key, UNUSED until guessed
+    private final int[] keyX = new int[KEYS.length];
+    private final int[] keyY = new int[KEYS.length];
+    private final int[] keyWidth = new int[KEYS.length];
+    private int keyHeight;
+    private int layoutWidth = -1;
+    private int layoutHeight = -1;
+    private Font font;
+    private FontMetrics metrics;
+    private int pressed = -1;
+    private Consumer<String> action = key -> { };
+
+    public Keypad() {
+        Arrays.fill(states, UNUSED);
+        setOpaque(true);
+        setBackground(UIManager.getColor("Panel.background"));
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (isEnabled()) {
+                    press(keyAt(e.getX(), e.getY()));
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                int key = pressed;
+                press(-1);
+                if (key >= 0 && key == keyAt(e.getX(), e.getY())) {
+                    action.accept(KEYS[key]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets what a click does; it is given the key's label, a symbol, "C" or "Enter".
+     */
+    public void setAction(Consumer<String> action) {
+        this.action = action;
+    }
+
+    /**
+     * Returns the feedback state shown on {@code symbol}'s key, or -1 if it has none.
+     */
+    public int getState(char symbol) {
+        int key = keyOf(symbol);
+        return key < 0 ? UNUSED : states[key];
+    }
+
+    /**
+     * Colours {@code symbol}'s key by a feedback state.
+     */
+    public void setState(char symbol, int state) {
+        int key = keyOf(symbol);
+        if (key >= 0 && states[key] != state) {
+            states[key] = (byte) state;
+            repaintKey(key);
+        }
+    }
+
+    /**
+     * Returns every key to its uncoloured state.
+     */
+    public void reset() {
+        Arrays.fill(states, UNUSED);
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        return new Dimension(PER_ROW * 90, 2 * 50 + GAP);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        layoutKeys();
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        g.setFont(font);
+        for (int key = 0; key < KEYS.length; key++) {
+            if (g.hitClip(keyX[key], keyY[key], keyWidth[key], keyHeight)) {
+                paintKey(g, key);
+            }
+        }
+    }
+
+    private void paintKey(Graphics g, int key) {
+        int state = states[key];
+        g.setColor(key == pressed ? PRESSED
+                : state == Feedback.CORRECT || state == Feedback.MISPLACED ? BoardGrid.colorOf(state) : KEY);
+        g.fillRoundRect(keyX[key], keyY[key], keyWidth[key], keyHeight, 8, 8);
+        g.setColor(Color.GRAY);
+        g.drawRoundRect(keyX[key], keyY[key], keyWidth[key] - 1, keyHeight - 1, 8, 8);
+        g.setColor(isEnabled() ? Color.BLACK : Color.GRAY);
+        String label = KEYS[key];
+        g.drawString(label, keyX[key] + (keyWidth[key] - metrics.stringWidth(label)) / 2,
+                keyY[key] + (keyHeight - metrics.getHeight()) / 2 + metrics.getAscent());
+    }
+
+    private void press(int key) {
+        if (key == pressed) {
+            return;
+        }
+        int released = pressed;
+        pressed = key;
+        if (released >= 0) {
+            repaintKey(released);
+        }
+        if (key >= 0) {
+            repaintKey(key);
+        }
+    }
+
+    private void repaintKey(int key) {
+        if (layoutWidth >= 0) {
+            repaint(keyX[key], keyY[key], keyWidth[key], keyHeight);
+        }
+    }
+
+    private int keyAt(int x, int y) {
+        layoutKeys();
+        for (int key = 0; key < KEYS.length; key++) {
+            if (x >= keyX[key] && x < keyX[key] + keyWidth[key] && y >= keyY[key] && y < keyY[key] + keyHeight) {
+                return key;
+            }
+        }
+        return -1;
+    }
+
+    private static int keyOf(char symbol) {
+        for (int key = 0; key < KEYS.length; key++) {
+            if (KEYS[key].length() == 1 && KEYS[key].charAt(0) == symbol) {
+                return key;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Spreads the keys over the current size.
+     */
+    private void layoutKeys() {
+        if (getWidth() == layoutWidth && getHeight() == layoutHeight) {
+            return;
+        }
+        layoutWidth = getWidth();
+        layoutHeight = getHeight();
+        int unit = Math.max(1, (layoutWidth - (PER_ROW - 1) * GAP) / PER_ROW);
+        keyHeight = Math.max(1, (layoutHeight - GAP) / 2);
+        for (int key = 0; key < KEYS.length; key++) {
+            int column = key % PER_ROW;
+            keyX[key] = column * (unit + GAP);
+            keyY[key] = key / PER_ROW * (keyHeight + GAP);
+            keyWidth[key] = key == KEYS.length - 1 ? 2 * unit + GAP : unit; // Enter
+        }
+        font = new Font("Arial", Font.BOLD, Math.max(8, Math.min(20, keyHeight / 2)));
+        metrics = getFontMetrics(font);
+    }
+}
@@ -0,0 +1,125 @@
+// LatencyHistogram.java
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent histogram of non-negative values, typically nanosecond latencies, with a bounded
+ * relative error in the style of HdrHistogram.
+ * <p>
+ * Values below {@value #SUB_BUCKETS} get a bucket each; larger values fall into one of
+ * {@value #SUB_BUCKETS} equal sub-buckets of their power of two, so every bucket is at most
+ * 12.5% wide relative to its lower bound and the whole {@code long} range fits in under 500
+ * counters. Recording is a bit scan and one atomic increment. Threads are spread over several
+ * stripes of counters to keep them off each other's cache lines, and readers merge the stripes.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private static final int STRIPES = Math.min(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) * 2);
+
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+
+    public LatencyHistogram() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    public void record(long value) {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        stripes[stripe].incrementAndGet(bucketOf(Math.max(0, value)));
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the smallest value that falls into {@code bucket}.
+     */
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket & (SUB_BUCKETS - 1);
+        return (SUB_BUCKETS | sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Returns a consistent-enough copy of the merged counters for reporting.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return new Snapshot(counts);
+    }
+
+    /**
+     * Merged counters at one point in time.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long total;
+        private final double mean;
+
+        private Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                total += counts[i];
+                sum += (double) counts[i] * lowerBound(i);
+            }
+            this.total = total;
+            this.mean = total == 0 ? 0 : sum / total;
+        }
+
+        public long getCount() {
+            return total;
+        }
+
+        /**
+         * Returns the mean, computed from bucket lower bounds.
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * Returns the lower bound of the bucket holding the given quantile, e.g. 0.99.
+         */
+        public long getQuantile(double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(1, rank)) {
+                    return lowerBound(i);
+                }
+            }
+            return lowerBound(counts.length - 1);
+        }
+
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0) {
+                    return lowerBound(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+// MachineProtocol.java
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Line-based protocol for bots, driving one {@link NumberleController} over a pair of byte
+ * channels, typically stdin and stdout.
+ * <p>
+ * Commands and responses are one ASCII line each; tokens are separated by single spaces.
+ * <pre>
+ *   N [seed]           -> N length attempts              new game, the same seed gives the same target
+ *   G guess            -> G code remaining P|W|L         a scored guess, code as packed by {@link Feedback}
+ *                      -> R status                       a rejected guess, status as {@link INumberleModel#getInputStatus}
+ *   B guess guess ...  -> B result ... remaining P|W|L   guesses in order, one result each: a code,
+ *                                                        R followed by the status, or X once the game is over
+ *   T                  -> T target                       only once the game is over
+ *   Q                                                    ends the session
+ * </pre>
+ * P, W and L mean playing, won and lost. Failures are answered with {@code E reason} and empty
+ * lines are ignored. Input is read in large chunks and every complete command in a chunk is
+ * answered into one output buffer, which is written out only when no further command is
+ * buffered, so clients may pipeline any number of commands and the cost per command is the
+ * game logic rather than console I/O.
+ */
+public final class MachineProtocol {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_RESPONSE = 256; // Longer than any response but a batch, which is streamed
+
+    private final NumberleController controller;
+    private final ReadableByteChannel in;
+    private final WritableByteChannel out;
+    private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+    private boolean started;
+
+    public MachineProtocol(NumberleController controller, ReadableByteChannel in, WritableByteChannel out) {
+        this.controller = controller;
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Answers commands until the input ends or a {@code Q} command arrives.
+     *
+     * @return the number of commands answered
+     */
+    public long serve() throws IOException {
+        long commands = 0;
+        byte[] buffer = input.array();
+        while (true) {
+            input.flip();
+            int start = input.position();
+            for (int i = start; i < input.limit(); i++) {
+                if (buffer[i] != '\n') {
+                    continue;
+                }
+                if (!execute(buffer, start, i)) {
+                    flush();
+                    return commands;
+                }
+                commands++;
+                start = i + 1;
+            }
+            input.position(start);
+            input.compact();
+            if (!input.hasRemaining()) {
+                throw new IOException("Command longer than " + BUFFER_SIZE + " bytes");
+            }
+            flush(); // Nothing complete is left to answer, so the client is waiting for these
+            if (in.read(input) < 0) {
+                if (input.position() > 0 && execute(buffer, 0, input.position())) {
+                    commands++; // A last command without a line break
+                }
+                flush();
+                return commands;
+            }
+        }
+    }
+
+    /**
+     * Answers the command in {@code buffer[from, to)}.
+     *
+     * @return false if the session should end
+     */
+    private boolean execute(byte[] buffer, int from, int to) throws IOException {
+        if (to > from && buffer[to - 1] == '\r') {
+            to--;
+        }
+        if (to == from) {
+            return true;
+        }
+        if (output.remaining() < MAX_RESPONSE) {
+            flush();
+        }
+        if (to > from + 1 && buffer[from + 1] != ' ') {
+            return error("unknown command");
+        }
+        int argument = Math.min(from + 2, to);
+        switch (buffer[from]) {
+            case 'N':
+            case 'n':
+                if (argument < to) {
+                    long seed;
+                    try {
+                        seed = Long.parseLong(new String(buffer, argument, to - argument, StandardCharsets.US_ASCII));
+                    } catch (NumberFormatException e) {
+                        return error("bad seed");
+                    }
+                    controller.startNewGame(seed);
+                } else {
+                    controller.startNewGame();
+                }
+                started = true;
+                put("N ").put(controller.getEquationLength()).put(' ').put(controller.getRemainingAttempts());
+                break;
+            case 'G':
+            case 'g': {
+                if (!started) return error("no game");
+                if (controller.isGameOver()) return error("game over");
+                if (argument >= to) return error("usage: G guess");
+                int code = guess(new String(buffer, argument, to - argument, StandardCharsets.US_ASCII));
+                if (code < 0) {
+                    put("R ").put(controller.getInputStatus());
+                } else {
+                    put("G ").put(code).put(' ').put(controller.getRemainingAttempts()).put(' ');
+                    putState();
+                }
+                break;
+            }
+            case 'B':
+            case 'b': {
+                if (!started) return error("no game");
+                output.put((byte) 'B');
+                for (int start = argument, end; start < to; start = end + 1) {
+                    end = start;
+                    while (end < to && buffer[end] != ' ') end++;
+                    if (end == start) continue;
+                    if (output.remaining() < MAX_RESPONSE) {
+                        flush(); // Long batches are streamed; the client reads up to the line break anyway
+                    }
+                    output.put((byte) ' ');
+                    if (controller.isGameOver()) {
+                        output.put((byte) 'X');
+                        continue;
+                    }
+                    int code = guess(new String(buffer, start, end - start, StandardCharsets.US_ASCII));
+                    if (code < 0) {
+                        put('R').put(controller.getInputStatus());
+                    } else {
+                        put(code);
+                    }
+                }
+                put(' ').put(controller.getRemainingAttempts()).put(' ');
+                putState();
+                break;
+            }
+            case 'T':
+            case 't':
+                if (!started) return error("no game");
+                if (!controller.isGameOver()) return error("game in progress");
+                put("T ").put(controller.getTargetEquation());
+                break;
+            case 'Q':
+            case 'q':
+                return false;
+            default:
+                return error("unknown command");
+        }
+        output.put((byte) '\n');
+        return true;
+    }
+
+    /**
+     * Submits one guess.
+     *
+     * @return the feedback code, or -1 if the guess was rejected
+     */
+    private int guess(String guess) {
+        GuessResult previous = controller.getLastResult();
+        controller.processInput(guess);
+        GuessResult result = controller.getLastResult();
+        return result == previous ? -1 : result.getCode();
+    }
+
+    private boolean error(String reason) {
+        put("E ").put(reason);
+        output.put((byte) '\n');
+        return true;
+    }
+
+    private void putState() {
+        output.put((byte) (controller.isGameWon() ? 'W' : controller.isGameOver() ? 'L' : 'P'));
+    }
+
+    private MachineProtocol put(char c) {
+        output.put((byte) c);
+        return this;
+    }
+
+    private MachineProtocol put(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            output.put((byte) s.charAt(i));
+        }
+        return this;
+    }
+
+    private MachineProtocol put(int value) {
+        if (value < 0) {
+            output.put((byte) '-');
+            value = -value;
+        }
+        int position = output.position();
+        do {
+            output.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value != 0);
+        // Digits went in least significant first
+        for (int i = position, j = output.position() - 1; i < j; i++, j--) {
+            byte digit = output.get(i);
+            output.put(i, output.get(j));
+            output.put(j, digit);
+        }
+        return this;
+    }
+
+    private void flush() throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            out.write(output);
+        }
+        output.clear();
+    }
+}
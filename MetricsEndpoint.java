@@ -0,0 +1,64 @@
+// MetricsEndpoint.java
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves a {@link GameMetrics} snapshot as plain text at {@code http://localhost:<port>/metrics}.
+ * <p>
+ * The endpoint binds to the loopback interface only and renders a fresh snapshot per request on
+ * the server's own thread, so scraping never touches the game threads.
+ */
+public final class MetricsEndpoint {
+    public static final String PORT_PROPERTY = "numberle.metrics.port";
+
+    private final HttpServer server;
+
+    public MetricsEndpoint(GameMetrics metrics, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> respond(exchange, metrics));
+    }
+
+    /**
+     * Starts an endpoint for the shared registry if {@code numberle.metrics.port} is set, which
+     * also switches metrics on for new models.
+     *
+     * @return the running endpoint, or null if none was configured
+     */
+    public static MetricsEndpoint startIfConfigured() throws IOException {
+        Integer port = Integer.getInteger(PORT_PROPERTY);
+        if (port == null) {
+            return null;
+        }
+        System.setProperty(GameMetrics.ENABLED_PROPERTY, "true");
+        MetricsEndpoint endpoint = new MetricsEndpoint(GameMetrics.shared(), port);
+        endpoint.start();
+        return endpoint;
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private static void respond(HttpExchange exchange, GameMetrics metrics) throws IOException {
+        byte[] body = metrics.snapshot().toText().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,478 @@
+// MultiBoardModel.java
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A game played on several boards at once: every guess is scored against one independent target
+ * per board, and the game is won when every board has been solved.
+ * <p>
+ * Each board is solved by the first guess that matches its target and receives no further
+ * guesses. The game allows {@link #attemptsFor(int)} guesses, {@link INumberleModel#MAX_ATTEMPTS}
+ * for the first board and one more for every other one. Guesses are scored for all boards in one
+ * pass by a {@link BatchScorer}, and every open board gets its own
+ * {@link NumberleEvent.Type#GUESS_SCORED} event.
+ * <p>
+ * As an {@link INumberleModel} the game is driven through a {@link NumberleController} like a
+ * single-board one. The single-board view of it is board by board where that makes sense:
+ * {@link #getLastResult()} is the last result published, {@link #getCandidateCount()} counts the
+ * boards still open, and {@link #getTargetEquation()} lists every target. Snapshots, adversarial
+ * games and hard mode are single-board features and are not supported.
+ */
+public class MultiBoardModel implements INumberleModel {
+    /** Most boards in one game. */
+    public static final int MAX_BOARDS = 32;
+
+    private final int boards;
+    private final int equationLength;
+    private EquationDictionary equations;
+    private BatchScorer scorer;
+    private final int[] targets;
+    private final String[] targetEquations;
+    private final GuessResult[] lastResults;
+    private final int[] codes;
+    private GuessResult lastResult;
+    private StringBuilder currentGuess;
+    private int solvedCount;
+    private int attempts;
+    private int remainingAttempts;
+    private int inputStatus = EquationEvaluator.OK;
+    private EquationSet equationSet; // Only in dictionary-closed games
+    private DifficultyIndex.Band difficulty;
+    private DifficultyIndex difficultyIndex; // Only while a difficulty is set
+    private final EquationEvaluator evaluator = new EquationEvaluator();
+    private final NumberleEventBus eventBus = new NumberleEventBus();
+    private GameMetrics metrics = GameMetrics.sharedIfEnabled();
+    private long gameStartNanos;
+
+    public MultiBoardModel(int boards) {
+        this(boards, INumberleModel.DEFAULT_EQUATION_LENGTH);
+    }
+
+    public MultiBoardModel(int boards, int equationLength) {
+        if (boards < 1 || boards > MAX_BOARDS) {
+            throw new IllegalArgumentException("Unsupported number of boards: " + boards);
+        }
+        if (equationLength < EquationGenerator.MIN_LENGTH || equationLength > EquationGenerator.MAX_LENGTH) {
+            throw new IllegalArgumentException("Unsupported equation length: " + equationLength);
+        }
+        this.boards = boards;
+        this.equationLength = equationLength;
+        this.targets = new int[boards];
+        this.targetEquations = new String[boards];
+        this.lastResults = new GuessResult[boards];
+        this.codes = new int[boards];
+    }
+
+    /**
+     * Creates a game that plays from the given fixed-width dictionary instead of the shared one
+     * for its length.
+     */
+    public MultiBoardModel(int boards, EquationDictionary dictionary) {
+        this(boards, dictionary.getEquationLength());
+        this.equations = dictionary;
+    }
+
+    /**
+     * Returns the number of guesses a game on {@code boards} boards allows.
+     */
+    public static int attemptsFor(int boards) {
+        return INumberleModel.MAX_ATTEMPTS + boards - 1;
+    }
+
+    @Override
+    public void loadEquations() {
+        if (scorer != null) {
+            return;
+        }
+        if (equations == null) {
+            try {
+                equations = EquationDictionary.forLength(equationLength);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not load the equations", e);
+            }
+        }
+        scorer = new BatchScorer(equationLength, boards);
+    }
+
+    /**
+     * Starts a game with distinct random targets.
+     */
+    @Override
+    public void initialize() {
+        initialize(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Starts a game whose first board has the target at dictionary index {@code targetIndex} and
+     * whose other boards have the equations that follow it in the dictionary.
+     */
+    @Override
+    public void initialize(int targetIndex) {
+        if (equations == null || targetIndex < 0 || targetIndex >= equations.size()) {
+            throw new IllegalArgumentException("No equation at index " + targetIndex);
+        }
+        if (equations.size() < boards) {
+            throw new IllegalStateException("Not enough equations for " + boards + " boards");
+        }
+        int[] picked = new int[boards];
+        for (int board = 0; board < boards; board++) {
+            picked[board] = (targetIndex + board) % equations.size();
+        }
+        initialize(picked);
+    }
+
+    /**
+     * Starts a game whose board {@code b} has the target at dictionary index
+     * {@code targetIndices[b]}.
+     */
+    public void initialize(int... targetIndices) {
+        if (targetIndices.length != boards) {
+            throw new IllegalArgumentException("Expected " + boards + " targets, not " + targetIndices.length);
+        }
+        if (scorer == null) {
+            throw new IllegalStateException("No equations loaded");
+        }
+        for (int board = 0; board < boards; board++) {
+            if (targetIndices[board] < 0 || targetIndices[board] >= equations.size()) {
+                throw new IllegalArgumentException("No equation at index " + targetIndices[board]);
+            }
+            targets[board] = targetIndices[board];
+            targetEquations[board] = equations.get(targetIndices[board]);
+        }
+        scorer.setTargets(targetEquations);
+        Arrays.fill(lastResults, null);
+        lastResult = null;
+        currentGuess = null;
+        solvedCount = 0;
+        attempts = 0;
+        remainingAttempts = attemptsFor(boards);
+        inputStatus = EquationEvaluator.OK;
+        if (metrics != null) {
+            metrics.gameStarted();
+            gameStartNanos = System.nanoTime();
+        }
+        publish(NumberleEvent.Type.GAME_STARTED, NumberleEvent.ALL_BOARDS, null);
+    }
+
+    private void initialize(Random random) {
+        if (equations == null || equations.size() < boards) {
+            throw new IllegalStateException("Not enough equations for " + boards + " boards");
+        }
+        int[] picked = new int[boards];
+        for (int board = 0; board < boards; board++) {
+            int index;
+            do {
+                index = difficultyIndex != null ? difficultyIndex.sample(difficulty, random.nextLong())
+                        : random.nextInt(equations.size());
+            } while (contains(picked, board, index)); // Boards never share a target
+            picked[board] = index;
+        }
+        initialize(picked);
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void startNewGame() {
+        loadEquations();
+        initialize();
+    }
+
+    /**
+     * Starts a game whose targets follow from {@code seed}, the same on every run.
+     */
+    @Override
+    public void startNewGame(long seed) {
+        loadEquations();
+        initialize(new Random(seed));
+    }
+
+    /**
+     * Plays one guess on every open board.
+     *
+     * @return true if the guess solved the last open board
+     */
+    @Override
+    public boolean processInput(String input) {
+        if (isGameOver()) {
+            return false;
+        }
+        GameMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0L;
+        boolean won = play(input);
+        if (metrics != null) {
+            long end = System.nanoTime();
+            metrics.inputProcessed(inputStatus == EquationEvaluator.OK, end - start);
+            if (inputStatus == EquationEvaluator.OK && isGameOver()) {
+                metrics.gameOver(isGameWon(), end - gameStartNanos);
+            }
+        }
+        return won;
+    }
+
+    private boolean play(String input) {
+        if (!isValidInput(input)) {
+            inputStatus = INVALID_FORMAT;
+            return false;
+        }
+        if (equationSet != null) {
+            // Dictionary-closed games accept exactly the dictionary equations, all of them true
+            inputStatus = equationSet.contains(input) ? EquationEvaluator.OK : NOT_IN_DICTIONARY;
+        } else {
+            isCorrectEquation(input);
+        }
+        if (inputStatus != EquationEvaluator.OK) {
+            return false;
+        }
+        currentGuess = new StringBuilder(input);
+        scorer.score(input, codes);
+        attempts++;
+        remainingAttempts--;
+        int solvedBefore = solvedCount;
+        for (int board = 0; board < boards; board++) {
+            if (isSolved(board)) {
+                continue;
+            }
+            GuessResult result = new GuessResult(attempts, input, codes[board]);
+            lastResults[board] = result;
+            lastResult = result;
+            if (result.isCorrect()) {
+                solvedCount++;
+            }
+            publish(NumberleEvent.Type.GUESS_SCORED, board, result);
+        }
+        if (isGameOver()) {
+            publish(NumberleEvent.Type.GAME_OVER, NumberleEvent.ALL_BOARDS, null);
+        }
+        return isGameWon() && solvedBefore < boards;
+    }
+
+    private void publish(NumberleEvent.Type type, int board, GuessResult result) {
+        if (eventBus.getSubscriberCount() == 0) {
+            return;
+        }
+        boolean won = board == NumberleEvent.ALL_BOARDS ? isGameWon() : isSolved(board);
+        int target = board == NumberleEvent.ALL_BOARDS ? -1 : targets[board];
+        eventBus.publish(new NumberleEvent(type, board, result, target, remainingAttempts, boards - solvedCount, won));
+    }
+
+    @Override
+    public boolean isValidInput(String input) {
+        return NumberleModel.isWellFormed(input, equationLength);
+    }
+
+    @Override
+    public boolean isCorrectEquation(String input) {
+        inputStatus = evaluator.checkEquation(input);
+        return inputStatus == EquationEvaluator.OK;
+    }
+
+    @Override
+    public int evaluateExpression(String expression) {
+        return NumberleModel.evaluate(evaluator, expression);
+    }
+
+    /**
+     * Returns whether {@code board} has been solved.
+     */
+    public boolean isSolved(int board) {
+        GuessResult result = lastResults[board];
+        return result != null && result.isCorrect();
+    }
+
+    public int getSolvedCount() {
+        return solvedCount;
+    }
+
+    @Override
+    public boolean isGameWon() {
+        return solvedCount == boards;
+    }
+
+    @Override
+    public boolean isGameOver() {
+        return isGameWon() || remainingAttempts <= 0;
+    }
+
+    @Override
+    public int getInputStatus() {
+        return inputStatus;
+    }
+
+    /**
+     * Returns the result of the last guess on the highest board it was scored on, or null before
+     * the first guess.
+     */
+    @Override
+    public GuessResult getLastResult() {
+        return lastResult;
+    }
+
+    @Override
+    public StringBuilder getCurrentGuess() {
+        return currentGuess;
+    }
+
+    /**
+     * Makes {@code guess} the current guess without scoring it; scored guesses always go
+     * through {@link #processInput(String)}, which plays them on every open board.
+     */
+    @Override
+    public void updateGuess(String guess) {
+        currentGuess = new StringBuilder(guess);
+    }
+
+    /**
+     * Returns the number of boards not solved yet, as the events of this game count candidates.
+     */
+    @Override
+    public int getCandidateCount() {
+        return boards - solvedCount;
+    }
+
+    /**
+     * Returns no candidates: a game on several boards does not track them.
+     */
+    @Override
+    public List<String> getCandidateSample(int limit) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the targets of all boards in board order, separated by spaces.
+     */
+    @Override
+    public String getTargetEquation() {
+        if (targetEquations[0] == null) {
+            return null;
+        }
+        return String.join(" ", targetEquations);
+    }
+
+    /**
+     * Returns the last guess scored on {@code board}, or null before the first one.
+     */
+    public GuessResult getLastResult(int board) {
+        return lastResults[board];
+    }
+
+    public String getTargetEquation(int board) {
+        return targetEquations[board];
+    }
+
+    @Override
+    public int getBoardCount() {
+        return boards;
+    }
+
+    @Override
+    public int getEquationLength() {
+        return equationLength;
+    }
+
+    @Override
+    public int getRemainingAttempts() {
+        return remainingAttempts;
+    }
+
+    @Override
+    public byte[] snapshot() {
+        throw new UnsupportedOperationException("Games on several boards cannot be snapshotted");
+    }
+
+    @Override
+    public void restore(byte[] snapshot) {
+        throw new UnsupportedOperationException("Games on several boards cannot be snapshotted");
+    }
+
+    @Override
+    public void setDictionaryClosed(boolean closed) {
+        if (!closed) {
+            equationSet = null;
+            return;
+        }
+        loadEquations();
+        try {
+            equationSet = EquationSet.forDictionary(equations);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not build the equation set", e);
+        }
+    }
+
+    @Override
+    public boolean isDictionaryClosed() {
+        return equationSet != null;
+    }
+
+    @Override
+    public void setAdversarial(boolean adversarial) {
+        if (adversarial) {
+            throw new UnsupportedOperationException("Adversarial games are played on one board");
+        }
+    }
+
+    @Override
+    public boolean isAdversarial() {
+        return false;
+    }
+
+    @Override
+    public void setHardMode(boolean hardMode) {
+        if (hardMode) {
+            throw new UnsupportedOperationException("Hard mode is played on one board");
+        }
+    }
+
+    @Override
+    public boolean isHardMode() {
+        return false;
+    }
+
+    /**
+     * Draws every board's target from a {@link DifficultyIndex} band in games started
+     * afterwards, or uniformly if {@code difficulty} is null.
+     */
+    @Override
+    public void setDifficulty(DifficultyIndex.Band difficulty) {
+        this.difficulty = difficulty;
+        if (difficulty == null) {
+            difficultyIndex = null;
+            return;
+        }
+        loadEquations();
+        try {
+            difficultyIndex = DifficultyIndex.forDictionary(equations);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not build the difficulty index", e);
+        }
+    }
+
+    @Override
+    public DifficultyIndex.Band getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Attaches a metrics registry, or detaches it when {@code metrics} is null.
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public NumberleEventBus getEventBus() {
+        return eventBus;
+    }
+}
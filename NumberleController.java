@@ -1,7 +1,10 @@
 // NumberleController.java
+import java.util.List;
+
 public class NumberleController {
     private INumberleModel model;
     private NumberleView view;
+    private NumberleSolver solver;
 
     public NumberleController(INumberleModel model) {
         this.model = model;
@@ -11,13 +14,83 @@ public class NumberleController {
         this.view = view;
     }
 
+    public void setSolver(NumberleSolver solver) {
+        this.solver = solver;
+        if (solver != null) {
+            solver.reset();
+        }
+    }
+
     public boolean processInput(String input) {
-        return model.processInput(input);
+        GuessResult previous = model.getLastResult();
+        boolean won = model.processInput(input);
+        GuessResult result = model.getLastResult();
+        // Keep the solver in step with every scored guess, whoever made it
+        if (solver != null && result != null && result != previous) {
+            solver.observe(result);
+        }
+        return won;
+    }
+
+    /**
+     * Lets the solver play one guess through {@link #processInput(String)}.
+     */
+    public boolean playSolverTurn() {
+        if (solver == null) {
+            throw new IllegalStateException("No solver has been set");
+        }
+        return processInput(solver.nextGuess());
+    }
+
+    public int getInputStatus() {
+        return model.getInputStatus();
+    }
+
+    /**
+     * Describes the outcome of the last input, e.g. why it was rejected.
+     */
+    public String getInputMessage() {
+        return describeInput(model.getInputStatus(), model.isGameWon());
+    }
+
+    /**
+     * Describes an input status as returned by {@link INumberleModel#getInputStatus()}.
+     */
+    public static String describeInput(int status, boolean won) {
+        switch (status) {
+            case INumberleModel.INVALID_FORMAT:
+                return "Invalid input format.";
+            case INumberleModel.NOT_IN_DICTIONARY:
+                return "Not in the equation list.";
+            case INumberleModel.BREAKS_HINTS:
+                return "Hard mode: use every hint revealed so far.";
+            case EquationEvaluator.OK:
+                return won ? "Correct equation." : "Not the exact match. Try again.";
+            case EquationEvaluator.NOT_EQUAL:
+                return "Incorrect equation.";
+            case EquationEvaluator.MALFORMED:
+                return "Number format error: " + EquationEvaluator.describe(status);
+            default:
+                return "Math error: " + EquationEvaluator.describe(status);
+        }
     }
 
     public void updateGuess(String guess) {
         model.updateGuess(guess);
     }
+
+    public GuessResult getLastResult() {
+        return model.getLastResult();
+    }
+
+    public int getCandidateCount() {
+        return model.getCandidateCount();
+    }
+
+    public List<String> getCandidateSample(int limit) {
+        return model.getCandidateSample(limit);
+    }
+
     public boolean isGameOver() {
         return model.isGameOver();
     }
@@ -34,12 +107,29 @@ public class NumberleController {
         return model.getCurrentGuess();
     }
 
+    public int getEquationLength() {
+        return model.getEquationLength();
+    }
+
     public int getRemainingAttempts() {
         return model.getRemainingAttempts();
     }
 
+    public int getBoardCount() {
+        return model.getBoardCount();
+    }
+
     public void startNewGame() {
         model.startNewGame();
-        System.out.println(model.getTargetEquation());
+        if (solver != null) {
+            solver.reset();
+        }
+    }
+
+    public void startNewGame(long seed) {
+        model.startNewGame(seed);
+        if (solver != null) {
+            solver.reset(seed);
+        }
     }
 }
\ No newline at end of file
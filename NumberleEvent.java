@@ -0,0 +1,103 @@
+// NumberleEvent.java
+
+/**
+ * Immutable notification published by the model through its {@link NumberleEventBus}.
+ * <p>
+ * Games on several boards ({@link MultiBoardModel}) publish one {@link Type#GUESS_SCORED} event
+ * per board that is still open, and {@link #getBoard()} tells which; their
+ * {@link Type#GAME_STARTED} and {@link Type#GAME_OVER} events concern all boards. Their candidate
+ * count is the number of boards not solved yet.
+ */
+public final class NumberleEvent {
+    public enum Type {
+        /** A new game began; {@link #getTargetIndex()} identifies the target in the dictionary. */
+        GAME_STARTED,
+        /** A guess was scored; {@link #getResult()} holds the feedback. */
+        GUESS_SCORED,
+        /** The game ended; {@link #isWon()} tells how. */
+        GAME_OVER
+    }
+
+    /** Board of events that concern every board of a multi-board game. */
+    public static final int ALL_BOARDS = -1;
+
+    private final Type type;
+    private final int board;
+    private final long timestamp;
+    private final GuessResult result;
+    private final int targetIndex;
+    private final int remainingAttempts;
+    private final int candidateCount;
+    private final boolean won;
+
+    public NumberleEvent(Type type, GuessResult result, int targetIndex, int remainingAttempts,
+                         int candidateCount, boolean won) {
+        this(type, 0, result, targetIndex, remainingAttempts, candidateCount, won);
+    }
+
+    public NumberleEvent(Type type, int board, GuessResult result, int targetIndex, int remainingAttempts,
+                         int candidateCount, boolean won) {
+        this.type = type;
+        this.board = board;
+        this.timestamp = System.currentTimeMillis();
+        this.result = result;
+        this.targetIndex = targetIndex;
+        this.remainingAttempts = remainingAttempts;
+        this.candidateCount = candidateCount;
+        this.won = won;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the board the event concerns: 0 in single-board games, otherwise the board index
+     * or {@link #ALL_BOARDS}.
+     */
+    public int getBoard() {
+        return board;
+    }
+
+    /**
+     * Returns the wall-clock time at which the event was published.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the scored guess for {@link Type#GUESS_SCORED} events, otherwise null.
+     */
+    public GuessResult getResult() {
+        return result;
+    }
+
+    /**
+     * Returns the dictionary index of the target, or -1 if it is not known.
+     */
+    public int getTargetIndex() {
+        return targetIndex;
+    }
+
+    public int getRemainingAttempts() {
+        return remainingAttempts;
+    }
+
+    public int getCandidateCount() {
+        return candidateCount;
+    }
+
+    /**
+     * Returns whether the game was won, or for a multi-board {@link Type#GUESS_SCORED} event
+     * whether its board is solved.
+     */
+    public boolean isWon() {
+        return won;
+    }
+
+    @Override
+    public String toString() {
+        return "NumberleEvent{" + type + ", board=" + board + ", result=" + result + ", remainingAttempts=" + remainingAttempts + "}";
+    }
+}
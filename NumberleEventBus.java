@@ -0,0 +1,135 @@
+// NumberleEventBus.java
+import javax.swing.SwingUtilities;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers {@link NumberleEvent}s to subscribers without running them on the publishing thread.
+ * <p>
+ * Every subscriber owns a mailbox. {@link #publish} only appends the event to each mailbox and,
+ * if that mailbox is not already being drained, schedules one drain on the subscriber's
+ * executor, so publishing never blocks and never waits for a slow subscriber. A drain hands
+ * over everything that has queued up in one go: a burst of events for a Swing subscriber costs
+ * a single {@link SwingUtilities#invokeLater} call, and a headless subscriber sees its events
+ * one at a time and in publication order on a shared pool of daemon threads.
+ * <p>
+ * Publishing and subscribing are safe from any thread.
+ */
+public final class NumberleEventBus {
+    private static final ExecutorService BACKGROUND = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "numberle-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Executor EDT = SwingUtilities::invokeLater;
+
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Subscribes a headless listener that receives events on a background thread.
+     */
+    public Subscription subscribe(NumberleListener listener) {
+        return subscribe(listener, BACKGROUND);
+    }
+
+    /**
+     * Subscribes a listener that receives events on the Swing event dispatch thread.
+     */
+    public Subscription subscribeOnEdt(NumberleListener listener) {
+        return subscribe(listener, EDT);
+    }
+
+    /**
+     * Subscribes a listener whose deliveries run on {@code executor}. A listener never receives
+     * two events concurrently, whatever the executor.
+     */
+    public Subscription subscribe(NumberleListener listener, Executor executor) {
+        Subscription subscription = new Subscription(listener, executor);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public void unsubscribe(Subscription subscription) {
+        subscriptions.remove(subscription);
+        subscription.cancel();
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Queues {@code event} for every current subscriber and returns immediately.
+     */
+    public void publish(NumberleEvent event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * A listener's mailbox. Events queue up while a drain is pending and are all delivered by
+     * that drain.
+     */
+    public static final class Subscription {
+        private final NumberleListener listener;
+        private final Executor executor;
+        private final Queue<NumberleEvent> mailbox = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        private Subscription(NumberleListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        private void offer(NumberleEvent event) {
+            if (cancelled) {
+                return;
+            }
+            mailbox.offer(event);
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // The executor has shut down, so nothing would ever drain this mailbox
+                    cancel();
+                }
+            }
+        }
+
+        private void drain() {
+            do {
+                NumberleEvent event;
+                while (!cancelled && (event = mailbox.poll()) != null) {
+                    try {
+                        listener.onEvent(event);
+                    } catch (RuntimeException e) {
+                        // A failing subscriber must not lose the events queued behind it
+                        e.printStackTrace();
+                    }
+                }
+                scheduled.set(false);
+                // An event may have arrived after the last poll but before the flag was cleared
+            } while (!cancelled && !mailbox.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+
+        private void cancel() {
+            cancelled = true;
+            mailbox.clear();
+        }
+
+        /**
+         * Returns the number of events waiting for delivery.
+         */
+        public int getPendingCount() {
+            return mailbox.size();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+// NumberleJfrEvents.java
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder events emitted by {@link NumberleModel}.
+ * <p>
+ * Any recording, e.g. one started with {@code -XX:StartFlightRecording}, captures them; they
+ * show up under "Numberle" in JDK Mission Control and can be switched off individually with
+ * settings such as {@code numberle.UpdateGuess#enabled=false}. While no recording is running,
+ * {@code begin()} and {@code commit()} do nothing and the JIT removes the event objects.
+ */
+public final class NumberleJfrEvents {
+    private NumberleJfrEvents() {
+    }
+
+    @Name("numberle.ProcessInput")
+    @Label("Process Input")
+    @Category("Numberle")
+    @Description("One submitted guess, from validation to feedback")
+    @StackTrace(false)
+    public static final class ProcessInput extends Event {
+        @Label("Input")
+        public String input;
+
+        @Label("Input Status")
+        @Description("0 if the guess was scored, otherwise why it was rejected")
+        public int status;
+
+        @Label("Won")
+        public boolean won;
+
+        @Label("Remaining Attempts")
+        public int remainingAttempts;
+    }
+
+    @Name("numberle.IsCorrectEquation")
+    @Label("Check Equation")
+    @Category("Numberle")
+    @Description("Evaluation of both sides of a guessed equation")
+    @StackTrace(false)
+    public static final class IsCorrectEquation extends Event {
+        @Label("Equation")
+        public String equation;
+
+        @Label("Status")
+        @Description("EquationEvaluator status code, 0 if the equation holds")
+        public int status;
+    }
+
+    @Name("numberle.UpdateGuess")
+    @Label("Update Guess")
+    @Category("Numberle")
+    @Description("Scoring a guess and narrowing the candidate equations")
+    @StackTrace(false)
+    public static final class UpdateGuess extends Event {
+        @Label("Guess")
+        public String guess;
+
+        @Label("Attempt")
+        public int attempt;
+
+        @Label("Feedback Code")
+        public int code;
+
+        @Label("Candidates Left")
+        public int candidateCount;
+    }
+}
@@ -0,0 +1,8 @@
+// NumberleListener.java
+
+/**
+ * Receives model events from a {@link NumberleEventBus}.
+ */
+public interface NumberleListener {
+    void onEvent(NumberleEvent event);
+}
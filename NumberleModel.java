@@ -1,162 +1,253 @@
 // NumberleModel.java
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
 
-public class NumberleModel extends Observable implements INumberleModel {
+public class NumberleModel implements INumberleModel {
     private String targetEquation;
-    private List<String> equations = new ArrayList<>();
+    private int targetIndex = -1;
+    private EquationDictionary equations;
     private List<String> guesses = new ArrayList<>();
     private StringBuilder currentGuess;
+    private GuessResult lastResult;
     private int remainingAttempts= MAX_ATTEMPTS;
     private boolean gameWon;
+    private int inputStatus = EquationEvaluator.OK;
+    private EquationSet equationSet; // Only in dictionary-closed games
+    private final EquationEvaluator evaluator = new EquationEvaluator();
+    private final int equationLength;
+    private CandidateFilter candidateFilter;
+    private long[] candidates;
+    private int candidateCount;
+    private boolean trackingCandidates = true;
+    private boolean adversarial;
+    private boolean deferred; // Adversarial game whose target is not decided yet
+    private CandidatePartitioner partitioner;
+    private boolean hardMode;
+    private HintConstraints hints; // Only in hard-mode games
+    private DifficultyIndex.Band difficulty;
+    private DifficultyIndex difficultyIndex; // Only while a difficulty is set
+    private final NumberleEventBus eventBus = new NumberleEventBus();
+    private GameMetrics metrics = GameMetrics.sharedIfEnabled();
+    private long gameStartNanos;
+
+    public NumberleModel() {
+        this(DEFAULT_EQUATION_LENGTH);
+    }
+
+    public NumberleModel(int equationLength) {
+        if (equationLength < EquationGenerator.MIN_LENGTH || equationLength > EquationGenerator.MAX_LENGTH) {
+            throw new IllegalArgumentException("Unsupported equation length: " + equationLength);
+        }
+        this.equationLength = equationLength;
+    }
+
+    /**
+     * Creates a model that plays from the given fixed-width dictionary instead of the shared
+     * one for its length, e.g. a reduced dictionary for benchmarks and tests.
+     */
+    public NumberleModel(EquationDictionary dictionary) {
+        if (dictionary.getEquationLength() == 0) {
+            throw new IllegalArgumentException("The model needs a fixed-width dictionary");
+        }
+        this.equationLength = dictionary.getEquationLength();
+        this.equations = dictionary;
+    }
 
     @Override
     public void loadEquations() {
-        try (BufferedReader reader = new BufferedReader(new FileReader("equations.txt"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                equations.add(line.trim()); // Add each line read to the list
+        if (candidateFilter != null) {
+            return; // The dictionary is mapped once and shared, so there is nothing to reload
+        }
+        try {
+            if (equations == null) {
+                equations = EquationDictionary.forLength(equationLength);
             }
+            candidateFilter = CandidateFilter.forDictionary(equations);
+            candidates = candidateFilter.all();
         } catch (IOException e) {
-            e.printStackTrace();
-            System.out.println("Error reading the equations file.");
+            throw new UncheckedIOException("Could not load the equations", e);
         }
     }
 
     @Override
     public void initialize() {
-        if (!equations.isEmpty()) {
-            Random rand = new Random();
-            targetEquation = equations.get(rand.nextInt(equations.size())); // Choose a random equation from the list
+        int index = -1;
+        if (equations != null && equations.size() > 0 && !adversarial) {
+            index = targetFor(ThreadLocalRandom.current().nextLong()); // Choose a random equation from the dictionary
+        }
+        initialize(index);
+    }
+
+    @Override
+    public void initialize(int targetIndex) {
+        deferred = targetIndex < 0 && adversarial && partitioner != null;
+        if (!deferred) {
+            // Only an adversarial game may start without a target
+            if (equations == null || targetIndex < 0 || targetIndex >= equations.size()) {
+                throw new IllegalArgumentException("No equation at index " + targetIndex);
+            }
+            this.targetIndex = targetIndex;
+            targetEquation = equations.get(targetIndex);
             assert targetEquation != null : "Target equation must not be null";
+        } else {
+            // The target is whatever equation survives the adversary's answers
+            this.targetIndex = -1;
+            targetEquation = null;
         }
+        hints = hardMode ? clearedHints() : null;
         remainingAttempts = MAX_ATTEMPTS;
         gameWon = false;
-        setChanged();
-        notifyObservers();
+        guesses.clear();
+        currentGuess = null;
+        lastResult = null;
+        if (candidates != null) {
+            candidateFilter.reset(candidates);
+            candidateCount = equations.size();
+        }
+        if (metrics != null) {
+            metrics.gameStarted();
+            gameStartNanos = System.nanoTime();
+        }
+        publish(NumberleEvent.Type.GAME_STARTED, null);
     }
 
     @Override
     public boolean processInput(String input) {
+        if (isGameOver()) {
+            return false; // Nothing is scored or counted until the next game starts
+        }
+        NumberleJfrEvents.ProcessInput event = new NumberleJfrEvents.ProcessInput();
+        event.begin();
+        GameMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0L;
+        boolean won = play(input);
+        if (metrics != null) {
+            long end = System.nanoTime();
+            metrics.inputProcessed(inputStatus == EquationEvaluator.OK, end - start);
+            if (inputStatus == EquationEvaluator.OK && isGameOver()) {
+                metrics.gameOver(gameWon, end - gameStartNanos);
+            }
+        }
+        if (event.shouldCommit()) {
+            event.input = input;
+            event.status = inputStatus;
+            event.won = won;
+            event.remainingAttempts = remainingAttempts;
+            event.commit();
+        }
+        return won;
+    }
+
+    private boolean play(String input) {
         assert input != null && !input.isEmpty() : "Input cannot be null or empty";
         // Verify that the input is properly formatted
         if (!isValidInput(input)) {
-            System.out.println("Invalid input format.");
+            inputStatus = INVALID_FORMAT;
             return false;
         }
-        // Verify that the input equation is mathematically correct
-        if (!isCorrectEquation(input)) {
-            System.out.println("Incorrect equation.");
+        if (hints != null && !hints.allows(input)) {
+            // Hard mode rejects a guess that ignores earlier feedback before anything is evaluated
+            inputStatus = BREAKS_HINTS;
             return false;
         }
+        if (equationSet != null) {
+            // Dictionary-closed games accept exactly the dictionary equations, all of them true
+            if (!equationSet.contains(input)) {
+                inputStatus = NOT_IN_DICTIONARY;
+                return false;
+            }
+            inputStatus = EquationEvaluator.OK;
+        } else if (!isCorrectEquation(input)) { // Verify that the input equation is mathematically correct
+            return false; // isCorrectEquation recorded why
+        }
+        // The event covers scoring too, which in an adversarial game is the most expensive step
+        NumberleJfrEvents.UpdateGuess event = new NumberleJfrEvents.UpdateGuess();
+        event.begin();
+        int code = score(input);
         // Check if user input exactly matches the target equation
-        if (input.equals(targetEquation)) {
+        if (code == Feedback.allCorrect(equationLength)) {
             gameWon = true;
-            updateGuess(input);
+            recordGuess(input, code, event);
+            publish(NumberleEvent.Type.GAME_OVER, lastResult);
             return true;
         } else {
             remainingAttempts--; // Reduce attempts only if the input is valid but does not exactly match the target equation
             assert remainingAttempts >= 0 : "Remaining attempts should never be negative";
-            System.out.println("Not the exact match. Try again.");
-            updateGuess(input);
+            recordGuess(input, code, event);
         }
 
         if (remainingAttempts <= 0) {
             gameWon = false;
+            if (deferred) {
+                decideTarget(); // Lost with several candidates left; reveal one of them
+            }
+            publish(NumberleEvent.Type.GAME_OVER, lastResult);
         }
         return false;
     }
 
     @Override
     public boolean isValidInput(String input) {
-        // Check if there is only one equal sign
-        if (input.chars().filter(ch -> ch == '=').count() != 1) {
+        return isWellFormed(input, equationLength);
+    }
+
+    /**
+     * Checks that {@code input} has the given length and exactly one equal sign.
+     */
+    static boolean isWellFormed(String input, int equationLength) {
+        // Check if input has the configured length
+        if (input.length() != equationLength) {
             return false;
         }
-        // Check if input length is 7
-        return input.length() == 7;
+        // Check if there is only one equal sign
+        int equalSigns = 0;
+        for (int i = 0; i < input.length(); i++) {
+            if (input.charAt(i) == '=') {
+                equalSigns++;
+            }
+        }
+        return equalSigns == 1;
     }
 
     @Override
     public boolean isCorrectEquation(String input) {
-        String[] parts = input.split("=");
-        if (parts.length != 2) {
-            return false; // Make sure the input is split correctly
-        }
-        try {
-            int leftResult = evaluateExpression(parts[0]);
-            int rightResult = Integer.parseInt(parts[1].trim());
-            return leftResult == rightResult;
-        } catch (NumberFormatException e) {
-            System.out.println("Number format error: " + e.getMessage());
-            return false;
-        } catch (ArithmeticException e) {
-            System.out.println("Math error: " + e.getMessage());
-            return false;
+        NumberleJfrEvents.IsCorrectEquation event = new NumberleJfrEvents.IsCorrectEquation();
+        event.begin();
+        inputStatus = evaluator.checkEquation(input);
+        if (event.shouldCommit()) {
+            event.equation = input;
+            event.status = inputStatus;
+            event.commit();
         }
+        return inputStatus == EquationEvaluator.OK;
+    }
+
+    @Override
+    public int getInputStatus() {
+        return inputStatus;
     }
 
     @Override
     public int evaluateExpression(String expression) {
-        Stack<Integer> numbers = new Stack<>();
-        Stack<Character> operations = new Stack<>();
-
-        for (int i = 0; i < expression.length(); i++) {
-            char c = expression.charAt(i);
-
-            if (Character.isDigit(c)) {
-                int num = 0;
-                while (i < expression.length() && Character.isDigit(expression.charAt(i))) {
-                    num = num * 10 + (expression.charAt(i) - '0');
-                    i++;
-                }
-                i--;
-                numbers.push(num);
-            } else if (c == '+' || c == '-' || c == '*' || c == '/') {
-                while (!operations.isEmpty() && (c == '+' || c == '-' || operations.peek() == '*' || operations.peek() == '/')) {
-                    int b = numbers.pop();
-                    int a = numbers.pop();
-                    switch (operations.pop()) {
-                        case '+':
-                            numbers.push(a + b);
-                            break;
-                        case '-':
-                            numbers.push(a - b);
-                            break;
-                        case '*':
-                            numbers.push(a * b);
-                            break;
-                        case '/':
-                            if (b == 0) throw new ArithmeticException("Cannot divide by zero");
-                            numbers.push(a / b);
-                            break;
-                    }
-                }
-                operations.push(c);
-            }
+        return evaluate(evaluator, expression);
+    }
+
+    /**
+     * Evaluates {@code expression} with {@code evaluator}, throwing for expressions without a
+     * value.
+     */
+    static int evaluate(EquationEvaluator evaluator, String expression) {
+        int status = evaluator.evaluate(expression);
+        if (status == EquationEvaluator.MALFORMED) {
+            throw new NumberFormatException(EquationEvaluator.describe(status) + ": " + expression);
         }
-        while (!operations.isEmpty()) {
-            int b = numbers.pop();
-            int a = numbers.pop();
-            switch (operations.pop()) {
-                case '+':
-                    numbers.push(a + b);
-                    break;
-                case '-':
-                    numbers.push(a - b);
-                    break;
-                case '*':
-                    numbers.push(a * b);
-                    break;
-                case '/':
-                    if (b == 0) throw new ArithmeticException("Cannot divide by zero");
-                    numbers.push(a / b);
-                    break;
-            }
+        if (status != EquationEvaluator.OK) {
+            throw new ArithmeticException(EquationEvaluator.describe(status));
         }
-        return numbers.pop();
+        return evaluator.getValue();
     }
 
     @Override
@@ -181,43 +272,278 @@ public class NumberleModel extends Observable implements INumberleModel {
 
     @Override
     public void updateGuess(String guess) {
+        NumberleJfrEvents.UpdateGuess event = new NumberleJfrEvents.UpdateGuess();
+        event.begin();
+        recordGuess(guess, score(guess), event);
+    }
+
+    /**
+     * Returns the feedback for {@code guess}: scored against the target, or in a deferred
+     * adversarial game the answer that keeps the most candidates alive.
+     */
+    private int score(String guess) {
+        if (!deferred) {
+            return Feedback.score(guess, targetEquation);
+        }
+        return partitioner.largestClass(candidates, guess, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Records a scored guess and narrows the candidates, then commits {@code event}, which the
+     * caller began before scoring.
+     */
+    private void recordGuess(String guess, int code, NumberleJfrEvents.UpdateGuess event) {
         guesses.add(guess);
         currentGuess = new StringBuilder(guess);
-        List<String> guessFeedback = new ArrayList<>(Collections.nCopies(guess.length(), ""));
-        boolean[] matchedTarget = new boolean[targetEquation.length()];
-
-        // Check for an exact match
-        for (int i = 0; i < guess.length(); i++) {
-            if (i < targetEquation.length() && guess.charAt(i) == targetEquation.charAt(i)) {
-                guessFeedback.set(i, guess.charAt(i) + " is in the equation and in the correct spot");
-                matchedTarget[i] = true;
+        lastResult = new GuessResult(guesses.size(), guess, code);
+        if (hints != null) {
+            hints.add(guess, code);
+        }
+        if (candidates != null && (trackingCandidates || deferred)) {
+            // Keep only the dictionary equations that would have produced the same feedback
+            candidateCount = candidateFilter.apply(candidates, guess, code);
+            if (deferred && candidateCount == 1) {
+                decideTarget(); // Only one equation is left, so the adversary has to commit to it
             }
         }
+        if (event.shouldCommit()) {
+            event.guess = guess;
+            event.attempt = lastResult.getAttempt();
+            event.code = code;
+            event.candidateCount = candidateCount;
+            event.commit();
+        }
+        // Tell subscribers about the packed feedback
+        publish(NumberleEvent.Type.GUESS_SCORED, lastResult);
+    }
+
+    @Override
+    public byte[] snapshot() {
+        if (targetEquation == null && !deferred) {
+            throw new IllegalStateException("No game to snapshot");
+        }
+        return new GameSnapshot(equationLength, targetIndex, equations.contentHashPrefix(), guesses, gameWon).toBytes();
+    }
 
-        // Check for existing but incorrectly located cases
-        for (int i = 0; i < guess.length(); i++) {
-            if (guessFeedback.get(i).isEmpty()) {
-                for (int j = 0; j < targetEquation.length(); j++) {
-                    if (!matchedTarget[j] && guess.charAt(i) == targetEquation.charAt(j)) {
-                        guessFeedback.set(i, guess.charAt(i) + " is in the equation, but in the wrong spot.");
-                        matchedTarget[j] = true;
-                        break;
-                    }
-                }
-                if (guessFeedback.get(i).isEmpty()) {
-                    guessFeedback.set(i, guess.charAt(i) + " is not in the target equation at all.");
-                }
+    @Override
+    public void restore(byte[] bytes) {
+        GameSnapshot snapshot = GameSnapshot.fromBytes(bytes);
+        loadEquations();
+        if (equations == null || snapshot.getEquationLength() != equationLength
+                || snapshot.getDictionaryHash() != equations.contentHashPrefix()) {
+            throw new IllegalArgumentException("The snapshot was taken with a different dictionary");
+        }
+        if (snapshot.getTargetIndex() >= equations.size()) {
+            throw new IllegalArgumentException("No equation at index " + snapshot.getTargetIndex());
+        }
+        // Rescore the guesses first, so a snapshot that contradicts its target changes nothing.
+        // An undecided adversarial game is replayed against the adversary, which answers the same
+        // guesses the same way.
+        boolean undecided = snapshot.getTargetIndex() < 0;
+        String target = undecided ? null : equations.get(snapshot.getTargetIndex());
+        long[] replayed = undecided ? candidateFilter.all() : null;
+        int replayedCount = equations.size();
+        if (undecided && partitioner == null) {
+            partitioner = CandidatePartitioner.forDictionary(equations);
+        }
+        List<String> restored = snapshot.getGuesses();
+        int[] codes = new int[restored.size()];
+        int wonAt = -1;
+        for (int i = 0; i < codes.length; i++) {
+            if (undecided) {
+                codes[i] = partitioner.largestClass(replayed, restored.get(i), ForkJoinPool.commonPool());
+                replayedCount = candidateFilter.apply(replayed, restored.get(i), codes[i]);
+            } else {
+                codes[i] = Feedback.score(restored.get(i), target);
+            }
+            if (wonAt < 0 && codes[i] == Feedback.allCorrect(equationLength)) {
+                wonAt = i;
             }
         }
-        System.out.println("Feedback:");
-        for (String feedback : guessFeedback) {
-            if (!feedback.isEmpty()) {
-                System.out.println(feedback);
+        if (snapshot.isWon() ? wonAt != codes.length - 1 : wonAt >= 0) {
+            throw new IllegalArgumentException("The snapshot does not match its target equation");
+        }
+
+        targetIndex = snapshot.getTargetIndex();
+        targetEquation = target;
+        deferred = undecided;
+        guesses.clear();
+        guesses.addAll(restored);
+        gameWon = snapshot.isWon();
+        remainingAttempts = MAX_ATTEMPTS - (gameWon ? codes.length - 1 : codes.length);
+        inputStatus = EquationEvaluator.OK;
+        lastResult = null;
+        currentGuess = null;
+        hints = hardMode ? clearedHints() : null;
+        for (int i = 0; hints != null && i < codes.length; i++) {
+            hints.add(restored.get(i), codes[i]);
+        }
+        if (codes.length > 0) {
+            String last = restored.get(codes.length - 1);
+            lastResult = new GuessResult(codes.length, last, codes[codes.length - 1]);
+            currentGuess = new StringBuilder(last);
+        }
+        if (undecided) {
+            System.arraycopy(replayed, 0, candidates, 0, replayed.length);
+            candidateCount = replayedCount;
+            if (candidateCount == 1 || isGameOver()) {
+                decideTarget();
+            }
+        } else if (candidates != null) {
+            candidateFilter.reset(candidates);
+            candidateCount = equations.size();
+            for (int i = 0; i < codes.length && trackingCandidates; i++) {
+                candidateCount = candidateFilter.apply(candidates, restored.get(i), codes[i]);
             }
         }
-        // Notify observers with the complete feedback data
-        setChanged();
-        notifyObservers(new AbstractMap.SimpleEntry<>(guesses.size(), guessFeedback));
+        gameStartNanos = System.nanoTime();
+    }
+
+    private void decideTarget() {
+        targetIndex = candidateFilter.first(candidates);
+        targetEquation = equations.get(targetIndex);
+        deferred = false;
+    }
+
+    private void publish(NumberleEvent.Type type, GuessResult result) {
+        if (eventBus.getSubscriberCount() == 0) {
+            return; // Headless games without subscribers skip the allocation
+        }
+        eventBus.publish(new NumberleEvent(type, result, targetIndex, remainingAttempts, candidateCount, gameWon));
+    }
+
+    @Override
+    public void setAdversarial(boolean adversarial) {
+        this.adversarial = adversarial;
+        if (adversarial) {
+            loadEquations();
+            if (equations != null) {
+                partitioner = CandidatePartitioner.forDictionary(equations);
+            }
+        }
+    }
+
+    @Override
+    public boolean isAdversarial() {
+        return adversarial;
+    }
+
+    @Override
+    public void setHardMode(boolean hardMode) {
+        this.hardMode = hardMode;
+    }
+
+    @Override
+    public boolean isHardMode() {
+        return hardMode;
+    }
+
+    @Override
+    public void setDifficulty(DifficultyIndex.Band difficulty) {
+        this.difficulty = difficulty;
+        if (difficulty == null) {
+            difficultyIndex = null;
+            return;
+        }
+        loadEquations();
+        if (equations == null) {
+            throw new IllegalStateException("No dictionary to pick targets from");
+        }
+        try {
+            difficultyIndex = DifficultyIndex.forDictionary(equations);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not build the difficulty index", e);
+        }
+    }
+
+    @Override
+    public DifficultyIndex.Band getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Returns empty hint constraints, reusing this model's if it has them.
+     */
+    private HintConstraints clearedHints() {
+        if (hints == null) {
+            return new HintConstraints(equationLength);
+        }
+        hints.reset();
+        return hints;
+    }
+
+    @Override
+    public void setDictionaryClosed(boolean closed) {
+        if (!closed) {
+            equationSet = null;
+            return;
+        }
+        loadEquations();
+        if (equations == null) {
+            throw new IllegalStateException("No dictionary to close the game over");
+        }
+        try {
+            equationSet = EquationSet.forDictionary(equations);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not build the equation set", e);
+        }
+    }
+
+    @Override
+    public boolean isDictionaryClosed() {
+        return equationSet != null;
+    }
+
+    /**
+     * Switches narrowing of the candidate set on or off. Consumers that never look at the
+     * candidates, such as journal replay, save the filtering work; while it is off the candidate
+     * count and sample are not updated.
+     */
+    public void setTrackingCandidates(boolean trackingCandidates) {
+        this.trackingCandidates = trackingCandidates;
+    }
+
+    /**
+     * Returns the dictionary games are played from, or null before {@link #loadEquations()}.
+     */
+    public EquationDictionary getDictionary() {
+        return equations;
+    }
+
+    /**
+     * Attaches a metrics registry, or detaches it when {@code metrics} is null.
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public NumberleEventBus getEventBus() {
+        return eventBus;
+    }
+
+    @Override
+    public GuessResult getLastResult() {
+        return lastResult;
+    }
+
+    @Override
+    public int getCandidateCount() {
+        return candidateCount;
+    }
+
+    @Override
+    public List<String> getCandidateSample(int limit) {
+        return candidates == null ? Collections.emptyList() : candidateFilter.sample(candidates, limit);
+    }
+
+    @Override
+    public int getEquationLength() {
+        return equationLength;
     }
 
     @Override
@@ -225,11 +551,30 @@ public class NumberleModel extends Observable implements INumberleModel {
         return remainingAttempts;
     }
 
+    @Override
+    public int getBoardCount() {
+        return 1;
+    }
+
     @Override
     public void startNewGame() {
         loadEquations();
         initialize();
-        setChanged();
-        notifyObservers();
+    }
+
+    @Override
+    public void startNewGame(long seed) {
+        loadEquations();
+        initialize(equations == null || equations.size() == 0 || adversarial ? -1 : targetFor(seed));
+    }
+
+    /**
+     * Draws a target for {@code seed}, from the difficulty band if one is set and uniformly
+     * otherwise. Either way it is a fixed function of the seed, so seeds mean the same target
+     * everywhere.
+     */
+    private int targetFor(long seed) {
+        return difficultyIndex != null ? difficultyIndex.sample(difficulty, seed)
+                : DifficultyIndex.sampleUniform(equations.size(), seed);
     }
 }
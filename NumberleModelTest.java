@@ -1,5 +1,38 @@
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class NumberleModelTest {
@@ -45,4 +78,990 @@ public class NumberleModelTest {
         }
         assertTrue(model.isGameOver(), "Game should be over after MAX_ATTEMPTS incorrect guesses.");
     }
+
+    // Multiplication and division bind tighter than addition and subtraction.
+    @Test
+    void testExpressionPrecedence() {
+        assertEquals(8, model.evaluateExpression("2+3*2"));
+        assertEquals(1, model.evaluateExpression("7-2*3"));
+        assertEquals(6, model.evaluateExpression("6/2*2"));
+        assertEquals(4, model.evaluateExpression("8-2-2"));
+    }
+
+    // Arithmetic problems are reported explicitly instead of producing a wrong value.
+    @Test
+    void testExpressionErrors() {
+        assertThrows(ArithmeticException.class, () -> model.evaluateExpression("4/0"));
+        assertThrows(ArithmeticException.class, () -> model.evaluateExpression("7/2"));
+        assertThrows(ArithmeticException.class, () -> model.evaluateExpression("99999*99999"));
+        assertThrows(NumberFormatException.class, () -> model.evaluateExpression("1+*2"));
+    }
+
+    // Both sides of an equation are evaluated, so either side may hold an expression.
+    @Test
+    void testCorrectEquation() {
+        assertTrue(model.isCorrectEquation("2+3*2=8"));
+        assertTrue(model.isCorrectEquation("6/2=3*1"));
+        assertFalse(model.isCorrectEquation("2+3*2=9"));
+        assertFalse(model.isCorrectEquation("7/2+1=4"));
+        assertFalse(model.isCorrectEquation("1+1=2=2"));
+    }
+
+    // Exact matches are claimed first, then repeated characters are matched left to right.
+    @Test
+    void testFeedbackScoring() {
+        int code = Feedback.score("1+1+1=3", "1*2-1=1");
+        int[] expected = {Feedback.CORRECT, Feedback.ABSENT, Feedback.MISPLACED, Feedback.ABSENT,
+                Feedback.CORRECT, Feedback.CORRECT, Feedback.ABSENT};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], Feedback.state(code, i), "State of position " + i);
+        }
+        assertEquals(Feedback.allCorrect(7), Feedback.score("2+3*2=8", "2+3*2=8"));
+        // Sixteen copies of a symbol would overflow its 4-bit counter
+        assertThrows(IllegalArgumentException.class, () -> Feedback.score("1111111111111111", "2222222222222222"));
+        assertThrows(IllegalArgumentException.class, () -> new HintConstraints(Feedback.MAX_LENGTH + 1));
+    }
+
+    // The feedback matrix stores one row per equation class, yet every cell agrees with direct scoring.
+    @Test
+    void testFeedbackMatrix() throws IOException {
+        EquationDictionary dictionary = EquationDictionary.forLength(5);
+        Path file = Files.createTempDirectory("matrix").resolve("feedback.matrix");
+        FeedbackMatrix.build(dictionary, file, ForkJoinPool.commonPool());
+        FeedbackMatrix reopened = FeedbackMatrix.open(file, dictionary);
+        assertEquals(dictionary.size(), reopened.size());
+        for (int guess = 0; guess < dictionary.size(); guess++) {
+            for (int target = 0; target < dictionary.size(); target++) {
+                assertEquals(Feedback.score(dictionary.get(guess), dictionary.get(target)), reopened.get(guess, target));
+            }
+        }
+        // Only class representatives get a row, and solving from it plays the same games
+        int classes = EquationClasses.forDictionary(dictionary).getClassCount();
+        assertEquals(classes, reopened.getRowCount());
+        assertTrue(classes < dictionary.size());
+        assertEquals(FeedbackMatrix.HEADER_SIZE + (long) classes * dictionary.size(), Files.size(file));
+        EntropySolver indexed = new EntropySolver(dictionary, reopened, ForkJoinPool.commonPool());
+        EntropySolver direct = new EntropySolver(dictionary, null, ForkJoinPool.commonPool());
+        for (int target = 0; target < dictionary.size(); target += 7) {
+            indexed.reset();
+            direct.reset();
+            for (int attempt = 1; ; attempt++) {
+                String guess = indexed.nextGuess();
+                assertEquals(direct.nextGuess(), guess);
+                GuessResult result = new GuessResult(attempt, guess, Feedback.score(guess, dictionary.get(target)));
+                if (result.isCorrect()) {
+                    break;
+                }
+                indexed.observe(result);
+                direct.observe(result);
+            }
+        }
+
+        // A cache built from another dictionary, or whose hash was altered, is rejected
+        assertThrows(IOException.class, () -> FeedbackMatrix.open(file, EquationDictionary.forLength(6)));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'x'}), 20); // First character of the dictionary hash
+        }
+        assertThrows(IOException.class, () -> FeedbackMatrix.open(file, dictionary));
+    }
+
+    // Scoring a guess publishes a packed result for the view and the CLI.
+    @Test
+    void testGuessResult() {
+        model.updateGuess(model.getTargetEquation());
+        GuessResult result = model.getLastResult();
+        assertEquals(1, result.getAttempt());
+        assertTrue(result.isCorrect());
+    }
+
+    // Every guess narrows the candidate set, and the target always survives.
+    @Test
+    void testCandidateNarrowing() {
+        int before = model.getCandidateCount();
+        model.processInput("1+2+3=6");
+        assertTrue(model.getCandidateCount() < before, "A scored guess should rule out equations.");
+        assertTrue(model.getCandidateSample(Integer.MAX_VALUE).contains(model.getTargetEquation()),
+                "The target must stay a candidate.");
+    }
+
+    // Events reach headless subscribers off the calling thread, in publication order.
+    @Test
+    void testEventsDeliveredInOrder() throws InterruptedException {
+        List<NumberleEvent> received = new CopyOnWriteArrayList<>();
+        CountDownLatch over = new CountDownLatch(1);
+        model.getEventBus().subscribe(event -> {
+            received.add(event);
+            if (event.getType() == NumberleEvent.Type.GAME_OVER) {
+                over.countDown();
+            }
+        });
+        model.processInput(model.getTargetEquation().equals("1+2+3=6") ? "1+2+4=7" : "1+2+3=6");
+        model.processInput(model.getTargetEquation());
+        assertTrue(over.await(5, TimeUnit.SECONDS), "The game over event should be delivered.");
+        assertEquals(NumberleEvent.Type.GUESS_SCORED, received.get(0).getType());
+        assertEquals(NumberleEvent.Type.GUESS_SCORED, received.get(1).getType());
+        assertTrue(received.get(1).getResult().isCorrect());
+        assertTrue(received.get(2).isWon());
+    }
+
+    // Rejected input is reported through a status instead of console output.
+    @Test
+    void testInputStatus() {
+        model.processInput("1+2=3");
+        assertEquals(NumberleModel.INVALID_FORMAT, model.getInputStatus());
+        model.processInput("7/2+1=4");
+        assertEquals(EquationEvaluator.NON_INTEGER_DIVISION, model.getInputStatus());
+        model.processInput("1+2+3=7");
+        assertEquals(EquationEvaluator.NOT_EQUAL, model.getInputStatus());
+        assertEquals(NumberleModel.MAX_ATTEMPTS, model.getRemainingAttempts(), "Rejected input costs no attempt.");
+        model.processInput(model.getTargetEquation());
+        assertEquals(EquationEvaluator.OK, model.getInputStatus());
+    }
+
+    // An attached registry counts inputs, guesses and finished games.
+    @Test
+    void testMetrics() {
+        GameMetrics metrics = new GameMetrics();
+        model.setMetrics(metrics);
+        model.initialize();
+        model.processInput("abc");
+        model.processInput(model.getTargetEquation());
+        GameMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getInputs());
+        assertEquals(1, snapshot.getInvalidInputs());
+        assertEquals(1, snapshot.getGuesses());
+        assertEquals(1.0, snapshot.getWinRate());
+        assertEquals(2, snapshot.getInputLatency().getCount());
+        assertEquals(1, snapshot.getGameDuration().getCount());
+    }
+
+    // Test that input after the end of a game is ignored, so every game is counted exactly once
+    @Test
+    void testNoPlayAfterGameOver() {
+        GameMetrics metrics = new GameMetrics();
+        model.setMetrics(metrics);
+        model.initialize();
+        String target = model.getTargetEquation();
+        String wrong = "1+2+3=6".equals(target) ? "1+1+1=3" : "1+2+3=6";
+        assertTrue(model.processInput(target));
+        assertFalse(model.processInput(target));
+        assertFalse(model.processInput(wrong));
+        assertEquals(1, model.getLastResult().getAttempt());
+        assertEquals(NumberleModel.MAX_ATTEMPTS, model.getRemainingAttempts()); // A win uses up no attempt
+
+        model.initialize();
+        for (int i = 0; i < NumberleModel.MAX_ATTEMPTS + 2; i++) {
+            model.processInput(wrong);
+        }
+        assertEquals(0, model.getRemainingAttempts());
+        GameMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getGamesStarted());
+        assertEquals(1, snapshot.getGamesWon());
+        assertEquals(1, snapshot.getGamesLost());
+        assertEquals(1 + NumberleModel.MAX_ATTEMPTS, snapshot.getGuesses());
+        assertEquals(1 + NumberleModel.MAX_ATTEMPTS, snapshot.getInputs());
+        assertEquals(2, snapshot.getGameDuration().getCount());
+    }
+
+    // Test that the generator enumerates every equation of a length exactly once, and only valid ones
+    @Test
+    void testEquationGenerator(@TempDir Path directory) throws IOException {
+        for (int length = 5; length <= 6; length++) {
+            Set<String> expected = classicEquations(length);
+            Path output = directory.resolve(EquationGenerator.dictionaryFileName(length));
+            assertEquals(expected.size(), new EquationGenerator(length).generate(output));
+            List<String> equations = Files.readAllLines(output, StandardCharsets.US_ASCII);
+            assertEquals(equations.size(), new HashSet<>(equations).size(), "No equation may be generated twice.");
+            assertEquals(expected, new HashSet<>(equations));
+        }
+    }
+
+    /**
+     * Finds every classic-form equation of {@code length} by trying all strings over the
+     * alphabet: one '=', an operator on the left, a plain number on the right, no unary signs
+     * and no number with a leading zero, that {@link EquationEvaluator} accepts.
+     */
+    private static Set<String> classicEquations(int length) {
+        EquationEvaluator evaluator = new EquationEvaluator();
+        String alphabet = Feedback.ALPHABET;
+        int[] digits = new int[length];
+        char[] chars = new char[length];
+        Set<String> equations = new HashSet<>();
+        while (true) {
+            for (int i = 0; i < length; i++) {
+                chars[i] = alphabet.charAt(digits[i]);
+            }
+            if (isClassicForm(chars) && evaluator.checkEquation(new String(chars)) == EquationEvaluator.OK) {
+                equations.add(new String(chars));
+            }
+            int position = length - 1;
+            while (position >= 0 && ++digits[position] == alphabet.length()) {
+                digits[position--] = 0;
+            }
+            if (position < 0) {
+                return equations;
+            }
+        }
+    }
+
+    private static boolean isClassicForm(char[] chars) {
+        int equals = -1;
+        boolean operator = false;
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if ((c < '0' || c > '9') && (i == 0 || !Character.isDigit(chars[i - 1]))) {
+                return false; // No unary signs, so every operator follows a number
+            }
+            if (c == '=') {
+                if (equals >= 0) return false;
+                equals = i;
+            } else if (c < '0' || c > '9') {
+                if (equals >= 0) return false; // The result is a plain number
+                operator = true;
+            } else if (c == '0' && i + 1 < chars.length && Character.isDigit(chars[i + 1])
+                    && (i == 0 || !Character.isDigit(chars[i - 1]))) {
+                return false; // A leading zero
+            }
+        }
+        return operator && equals >= 0;
+    }
+
+    // Test that a seeded simulation reports exactly the games played one by one, on any number of threads,
+    // for the random strategy too
+    @Test
+    void testSeededSimulation() throws IOException {
+        EquationDictionary dictionary = EquationDictionary.forLength(5);
+        int games = 150;
+        for (String strategy : new String[] {"solver", "random"}) {
+            long[] wins = new long[INumberleModel.MAX_ATTEMPTS + 1];
+            long losses = 0;
+            NumberleController controller = new NumberleController(new NumberleModel(dictionary));
+            controller.setSolver(GameSimulator.strategy(strategy).create(dictionary, ForkJoinPool.commonPool()));
+            for (int game = 0; game < games; game++) {
+                controller.startNewGame(7 + game);
+                for (int turn = 0; turn < GameSimulator.MAX_TURNS && !controller.isGameOver(); turn++) {
+                    controller.playSolverTurn();
+                }
+                if (controller.isGameWon()) {
+                    wins[controller.getLastResult().getAttempt()]++;
+                } else {
+                    losses++;
+                }
+            }
+
+            for (int threads : new int[] {1, 3}) {
+                GameSimulator simulator = new GameSimulator(dictionary, GameSimulator.strategy(strategy), threads);
+                simulator.setSeed(7L);
+                GameSimulator.Report report = simulator.run(games);
+                assertEquals(games, report.getGames());
+                assertEquals(games - losses, report.getWins());
+                assertEquals(losses, report.getLosses());
+                assertEquals(0, report.getAbandoned());
+                assertEquals(0, report.getRejectedGuesses());
+                for (int attempts = 1; attempts <= INumberleModel.MAX_ATTEMPTS; attempts++) {
+                    assertEquals(wins[attempts], report.getWins(attempts), strategy + " wins in " + attempts);
+                }
+            }
+        }
+    }
+
+    // Test that the entropy solver plays the guess of its pool that splits the candidates best
+    @Test
+    void testEntropySolverMaximizesEntropy() throws IOException {
+        EquationDictionary dictionary = EquationDictionary.forLength(5);
+        int[] pool = EquationClasses.forDictionary(dictionary).representatives();
+        EntropySolver solver = new EntropySolver(dictionary, null, ForkJoinPool.commonPool());
+        List<String> candidates = new ArrayList<>();
+        for (int i = 0; i < dictionary.size(); i++) {
+            candidates.add(dictionary.get(i));
+        }
+        String target = dictionary.get(dictionary.size() / 3);
+        for (int attempt = 1; candidates.size() > 2; attempt++) {
+            String guess = solver.nextGuess();
+            double best = 0;
+            for (int guessIndex : pool) {
+                best = Math.max(best, entropy(dictionary.get(guessIndex), candidates));
+            }
+            assertEquals(best, entropy(guess, candidates), 1e-3, "Entropy of " + guess);
+            GuessResult result = new GuessResult(attempt, guess, Feedback.score(guess, target));
+            solver.observe(result);
+            candidates.removeIf(candidate -> Feedback.score(guess, candidate) != result.getCode());
+            assertEquals(candidates.size(), solver.getCandidateCount());
+        }
+    }
+
+    private static double entropy(String guess, List<String> candidates) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (String candidate : candidates) {
+            counts.merge(Feedback.score(guess, candidate), 1, Integer::sum);
+        }
+        double entropy = 0;
+        for (int count : counts.values()) {
+            double p = (double) count / candidates.size();
+            entropy -= p * Math.log(p);
+        }
+        return entropy;
+    }
+
+    // Test that a journal records every event of a game and replays it without mismatches
+    @Test
+    void testJournalReplay() throws IOException {
+        Path directory = Files.createTempDirectory("journal");
+        long records;
+        try (GameJournal journal = new GameJournal(directory, 4096, 10)) {
+            journal.attach(model);
+            model.initialize();
+            model.processInput("1+1+1=3");
+            if (!model.isGameOver()) {
+                model.processInput(model.getTargetEquation());
+            }
+            journal.sync();
+            // Started, one or two guesses, over
+            records = journal.getRecordCount();
+            assertEquals(model.getLastResult().getAttempt() + 2, records);
+        }
+        JournalReader.ReplayReport report = new JournalReader(directory).replay();
+        assertEquals(records, report.getRecords());
+        assertEquals(1, report.getGames());
+        assertEquals(0, report.getMismatches());
+    }
+
+    // Test that one directory holding runs of different equation lengths replays as a whole
+    @Test
+    void testJournalReplayMixedLengths(@TempDir Path directory) throws IOException {
+        for (int length : new int[] {7, 6}) {
+            NumberleModel run = new NumberleModel(EquationDictionary.forLength(length));
+            try (GameJournal journal = new GameJournal(directory, 4096, 10)) {
+                journal.attach(run); // Stream 0 in both runs
+                run.startNewGame(length);
+                run.processInput(run.getTargetEquation());
+            }
+        }
+        JournalReader.ReplayReport report = new JournalReader(directory).replay();
+        assertEquals(6, report.getRecords());
+        assertEquals(2, report.getGames());
+        assertEquals(0, report.getMismatches());
+    }
+
+    // Test that closing a journal detaches it, so the model keeps playing and nothing more is recorded
+    @Test
+    void testJournalCloseThenPlay() throws IOException {
+        Path directory = Files.createTempDirectory("journal");
+        GameJournal journal = new GameJournal(directory, 4096, 10);
+        journal.attach(model);
+        model.startNewGame();
+        model.processInput("1+1+1=3");
+        journal.close();
+        long records = journal.getRecordCount();
+        assertEquals(0, model.getEventBus().getSubscriberCount());
+
+        model.processInput(model.getTargetEquation());
+        assertTrue(model.isGameOver());
+        model.startNewGame();
+        model.processInput("1+1+1=3");
+        assertEquals(records, journal.getRecordCount());
+        assertEquals(records, new JournalReader(directory).replay().getRecords());
+    }
+
+    // Test that restoring a snapshot brings back the game in progress
+    @Test
+    void testSnapshotRestore() {
+        model.initialize();
+        String target = model.getTargetEquation();
+        String guess = "1+2+3=6".equals(target) ? "1+1+1=3" : "1+2+3=6";
+        model.processInput(guess);
+        byte[] snapshot = model.snapshot();
+        assertEquals(GameSnapshot.sizeFor(model.getEquationLength()), snapshot.length);
+
+        NumberleModel restored = new NumberleModel();
+        restored.restore(snapshot);
+        assertEquals(target, restored.getTargetEquation());
+        assertEquals(model.getRemainingAttempts(), restored.getRemainingAttempts());
+        assertEquals(model.getLastResult().getCode(), restored.getLastResult().getCode());
+        assertEquals(model.getCandidateCount(), restored.getCandidateCount());
+        assertTrue(restored.processInput(target));
+        NumberleModel won = new NumberleModel();
+        won.restore(restored.snapshot());
+        assertTrue(won.isGameWon());
+        assertArrayEquals(restored.snapshot(), won.snapshot());
+
+        for (int length : new int[] {0, Feedback.MAX_LENGTH + 1, -1}) {
+            byte[] corrupt = snapshot.clone();
+            corrupt[3] = (byte) length; // The equation length follows the magic and version
+            assertThrows(IllegalArgumentException.class, () -> GameSnapshot.fromBytes(corrupt), "Length " + length);
+        }
+        snapshot[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> restored.restore(snapshot));
+        assertTrue(restored.isGameWon()); // A rejected snapshot leaves the game alone
+    }
+
+    // Test that a dictionary-closed game rejects equations outside the dictionary
+    @Test
+    void testDictionaryClosedValidation() throws IOException {
+        EquationSet set = EquationSet.forDictionary(EquationDictionary.forLength(INumberleModel.DEFAULT_EQUATION_LENGTH));
+        EquationDictionary dictionary = set.getDictionary();
+        for (int i = 0; i < dictionary.size(); i += 97) {
+            assertEquals(i, set.indexOf(dictionary.get(i)));
+        }
+        assertFalse(set.contains("1+1+1=4"));
+        assertFalse(set.contains("1+1=2"));
+
+        model.setDictionaryClosed(true);
+        model.initialize();
+        String outside = "3=1+1+1";
+        assertTrue(model.isCorrectEquation(outside)); // True, but the dictionary keeps results on the right
+        assertFalse(set.contains(outside));
+        assertFalse(model.processInput(outside));
+        assertEquals(INumberleModel.NOT_IN_DICTIONARY, model.getInputStatus());
+        assertEquals(INumberleModel.MAX_ATTEMPTS, model.getRemainingAttempts());
+        assertTrue(model.processInput(model.getTargetEquation()));
+    }
+
+    // Test the line protocol of the machine-readable CLI mode
+    @Test
+    void testMachineProtocol() throws IOException {
+        model.startNewGame(42);
+        String target = model.getTargetEquation();
+        String wrong = "1+2+3=6".equals(target) ? "1+1+1=3" : "1+2+3=6";
+        // Pipelined: every command is sent before any response is read
+        String commands = "N 42\nG " + wrong + "\nG abc\nT\nB " + wrong + " " + target + " " + wrong + "\nT\nQ\nN\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MachineProtocol protocol = new MachineProtocol(new NumberleController(new NumberleModel()),
+                Channels.newChannel(new ByteArrayInputStream(commands.getBytes(StandardCharsets.US_ASCII))),
+                Channels.newChannel(out));
+        assertEquals(6, protocol.serve());
+        int code = Feedback.score(wrong, target);
+        assertEquals("N 7 6\n"
+                + "G " + code + " 5 P\n"
+                + "R " + INumberleModel.INVALID_FORMAT + "\n"
+                + "E game in progress\n"
+                + "B " + code + " " + Feedback.allCorrect(7) + " X 4 W\n"
+                + "T " + target + "\n", out.toString(StandardCharsets.US_ASCII.name()));
+    }
+
+    // Test that an adversarial game never concedes a win while other candidates remain, and that
+    // only an adversarial game may start without a target
+    @Test
+    void testAdversarialGame() {
+        model.loadEquations();
+        assertThrows(IllegalArgumentException.class, () -> model.initialize(-1));
+        model.setAdversarial(true);
+        model.startNewGame();
+        assertNull(model.getTargetEquation());
+        String first = model.getCandidateSample(1).get(0);
+        assertFalse(model.processInput(first)); // Never a win while other candidates remain
+        int firstCode = model.getLastResult().getCode();
+        int afterFirst = model.getCandidateCount();
+        assertTrue(afterFirst > 1);
+
+        // An undecided game survives a snapshot, with the adversary replayed on restore
+        NumberleModel restored = new NumberleModel();
+        restored.restore(model.snapshot());
+        assertNull(restored.getTargetEquation());
+        assertEquals(afterFirst, restored.getCandidateCount());
+        assertEquals(model.getLastResult().getCode(), restored.getLastResult().getCode());
+
+        while (!model.isGameOver()) {
+            model.processInput(model.getCandidateSample(1).get(0));
+        }
+        String target = model.getTargetEquation();
+        assertNotNull(target);
+        // The target it settled on explains every answer it gave
+        assertEquals(model.getLastResult().getCode(), Feedback.score(model.getLastResult().getGuess(), target));
+        assertEquals(firstCode, Feedback.score(first, target));
+    }
+
+    // Test that a multi-board game scores every guess on each unsolved board
+    @Test
+    void testMultiBoardGame() {
+        MultiBoardModel boards = new MultiBoardModel(8);
+        List<NumberleEvent> events = new ArrayList<>();
+        boards.getEventBus().subscribe(events::add, Runnable::run);
+        boards.startNewGame(42L);
+        assertEquals(MultiBoardModel.attemptsFor(8), boards.getRemainingAttempts());
+
+        // One pass over all boards agrees with scoring each board on its own
+        String guess = "1+2*3=7";
+        assertFalse(boards.processInput(guess));
+        for (int board = 0; board < 8; board++) {
+            assertEquals(Feedback.score(guess, boards.getTargetEquation(board)), boards.getLastResult(board).getCode());
+        }
+        assertFalse(boards.processInput("1+1=3+0"));
+        assertEquals(EquationEvaluator.NOT_EQUAL, boards.getInputStatus());
+
+        for (int board = 0; board < 8 && !boards.isGameOver(); board++) {
+            boards.processInput(boards.getTargetEquation(board));
+        }
+        assertTrue(boards.isGameWon());
+        assertEquals(2, events.stream().filter(e -> e.getType() == NumberleEvent.Type.GAME_STARTED
+                || e.getType() == NumberleEvent.Type.GAME_OVER).count());
+        // Every open board hears about every guess, solved boards about none after theirs
+        long scored = events.stream().filter(e -> e.getType() == NumberleEvent.Type.GUESS_SCORED).count();
+        assertEquals(8 + (8 + 7 + 6 + 5 + 4 + 3 + 2 + 1), scored);
+        NumberleEvent last = events.get(events.size() - 1);
+        assertEquals(NumberleEvent.ALL_BOARDS, last.getBoard());
+        assertTrue(last.isWon());
+    }
+
+    // Test that batch scoring agrees with Feedback on random targets full of repeated symbols
+    @Test
+    void testBatchScorerRandomized() {
+        Random random = new Random(18L);
+        for (int length : new int[] {5, 7, Feedback.MAX_LENGTH}) {
+            BatchScorer scorer = new BatchScorer(length, 32);
+            for (int boards : new int[] {1, 2, 7, 32, 3}) {
+                // Few distinct symbols, so most strings repeat some of them
+                String symbols = Feedback.ALPHABET.substring(0, 1 + random.nextInt(4)) + "=";
+                String[] targets = new String[boards];
+                for (int board = 0; board < boards; board++) {
+                    targets[board] = randomString(random, symbols, length);
+                }
+                scorer.setTargets(targets);
+                assertEquals(boards, scorer.getBoardCount());
+                int[] codes = new int[boards];
+                for (int round = 0; round < 50; round++) {
+                    String guess = randomString(random, symbols, length);
+                    scorer.score(guess, codes);
+                    for (int board = 0; board < boards; board++) {
+                        assertEquals(Feedback.score(guess, targets[board]), codes[board],
+                                guess + " against " + targets[board]);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String randomString(Random random, String symbols, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(symbols.charAt(random.nextInt(symbols.length())));
+        }
+        return builder.toString();
+    }
+
+    // Test that a multi-board game is driven through the controller like a single-board one
+    @Test
+    void testMultiBoardController() {
+        MultiBoardModel boards = new MultiBoardModel(2);
+        GameMetrics metrics = new GameMetrics();
+        boards.setMetrics(metrics);
+        NumberleController controller = new NumberleController(boards);
+        controller.startNewGame(7L);
+        assertEquals(2, controller.getBoardCount());
+        assertEquals(2, controller.getCandidateCount());
+        assertFalse(controller.processInput("1+1=3+0"));
+        assertEquals(EquationEvaluator.NOT_EQUAL, controller.getInputStatus());
+        assertEquals(MultiBoardModel.attemptsFor(2), controller.getRemainingAttempts());
+
+        assertFalse(controller.processInput(boards.getTargetEquation(0)));
+        assertEquals(1, controller.getCandidateCount());
+        assertTrue(controller.processInput(boards.getTargetEquation(1)));
+        assertTrue(controller.isGameWon());
+        assertEquals(boards.getTargetEquation(0) + " " + boards.getTargetEquation(1), controller.getTargetEquation());
+        GameMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getGamesStarted());
+        assertEquals(1, snapshot.getGamesWon());
+        assertEquals(2, snapshot.getGuesses());
+        assertEquals(1, snapshot.getInvalidInputs());
+    }
+
+    // Test that hard mode rejects guesses that ignore earlier feedback
+    @Test
+    void testHardMode() throws IOException {
+        String target = "1+2*3=7";
+        String guess = "7-2*1=5"; // Greens 2, * and =, oranges 7 and 1, greys - and 5
+        int code = Feedback.score(guess, target);
+        HintConstraints hints = new HintConstraints(7);
+        hints.add(guess, code);
+        assertTrue(hints.allows(target));
+        assertFalse(hints.allows("1+3*2=7")); // Moves a green
+        assertFalse(hints.allows("1+2*4=9")); // Drops the orange 7
+        assertFalse(hints.allows("7+2*3=1")); // Puts 7 back where it was orange
+        assertFalse(hints.allows("9-2*3=3")); // Uses the grey -
+        assertFalse(hints.allows("1+2*3=77")); // Wrong length
+        // Anything that could still be the target is always allowed
+        EquationDictionary dictionary = EquationDictionary.forLength(7);
+        for (int i = 0; i < dictionary.size(); i++) {
+            String equation = dictionary.get(i);
+            if (Feedback.score(guess, equation) == code) {
+                assertTrue(hints.allows(equation), equation);
+            }
+        }
+
+        model.setHardMode(true);
+        model.startNewGame();
+        model.initialize(EquationSet.forDictionary(dictionary).indexOf(target));
+        assertFalse(model.processInput(guess));
+        assertEquals(EquationEvaluator.OK, model.getInputStatus());
+        assertFalse(model.processInput("1+3*2=7"));
+        assertEquals(INumberleModel.BREAKS_HINTS, model.getInputStatus());
+        assertEquals(INumberleModel.MAX_ATTEMPTS - 1, model.getRemainingAttempts());
+
+        // The hints survive a snapshot
+        NumberleModel restored = new NumberleModel();
+        restored.setHardMode(true);
+        restored.restore(model.snapshot());
+        assertFalse(restored.processInput("1+3*2=7"));
+        assertEquals(INumberleModel.BREAKS_HINTS, restored.getInputStatus());
+        assertTrue(model.processInput(target));
+    }
+
+    // Test that a compiled dictionary can be loaded from the classpath
+    @Test
+    void testDictionaryFromClasspath(@TempDir Path directory) throws Exception {
+        assertNull(EquationDictionary.fromResource("no-such-equations.dict"));
+        // Ship a compiled copy of the default dictionary as a loose resource and inside a jar, as the fast-start build does
+        Path resources = Files.createDirectory(directory.resolve("resources"));
+        EquationDictionary.compile(Paths.get(EquationGenerator.dictionaryFileName(7)), resources.resolve("test-equations.dict"));
+        Path jar = directory.resolve("equations.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("test-equations.dict"));
+            Files.copy(resources.resolve("test-equations.dict"), out);
+            out.closeEntry();
+        }
+        EquationDictionary local = EquationDictionary.forLength(7);
+        for (Path root : new Path[] {resources, jar}) {
+            try (URLClassLoader loader = new URLClassLoader(new URL[] {root.toUri().toURL()}, null)) {
+                EquationDictionary shipped = EquationDictionary.fromResource("test-equations.dict", loader);
+                assertEquals(local.size(), shipped.size());
+                assertEquals(local.contentHash(), shipped.contentHash());
+                assertEquals(local.get(local.size() - 1), shipped.get(shipped.size() - 1));
+            }
+        }
+    }
+
+    // Test that compiling refuses a dictionary too large for a single mapping, instead of writing a broken file
+    @Test
+    void testDictionarySizeLimit(@TempDir Path directory) throws IOException {
+        Path text = directory.resolve("mixed.txt");
+        Files.write(text, List.of("1+1=2", "10+1=11"), StandardCharsets.US_ASCII);
+        Path binary = directory.resolve("mixed.dict");
+        long size = EquationDictionary.HEADER_SIZE + 12 + 2 * (1 + Integer.BYTES); // Records plus length bytes and index
+        IOException e = assertThrows(IOException.class, () -> EquationDictionary.compile(text, binary, size - 1));
+        assertTrue(e.getMessage().contains("does not fit"), e.getMessage());
+        assertFalse(Files.exists(binary));
+        EquationDictionary.compile(text, binary, size);
+        assertEquals(size, Files.size(binary));
+        assertEquals("10+1=11", EquationDictionary.open(binary).get(1));
+    }
+
+    // Test that equivalent equations share a canonical form and their classes cover the dictionary
+    @Test
+    void testEquationClasses() throws IOException {
+        EquationCanonicalizer canonicalizer = new EquationCanonicalizer();
+        assertEquals(canonicalizer.canonicalize("3+2=5*1"), canonicalizer.canonicalize("2+3=1*5"));
+        assertEquals(canonicalizer.canonicalize("6/2=1*3"), canonicalizer.canonicalize("3*1=6/2"));
+        assertNotEquals(canonicalizer.canonicalize("6/2=3"), canonicalizer.canonicalize("2/6=3"));
+        assertNotEquals(canonicalizer.canonicalize("9-4=5"), canonicalizer.canonicalize("4-9=5"));
+        assertNull(canonicalizer.canonicalize("1+1=2=2"));
+
+        EquationDictionary dictionary = EquationDictionary.forLength(7);
+        EquationClasses classes = EquationClasses.forDictionary(dictionary);
+        assertSame(classes, EquationClasses.forDictionary(dictionary));
+        assertTrue(classes.getClassCount() < dictionary.size());
+        int total = 0;
+        for (int id = 0; id < classes.getClassCount(); id++) {
+            int[] members = classes.members(id);
+            total += members.length;
+            assertEquals(classes.sizeOf(id), members.length);
+            assertEquals(classes.representative(id), members[0]);
+            String form = canonicalizer.canonicalize(dictionary.get(members[0]));
+            for (int member : members) {
+                assertEquals(id, classes.classOf(member));
+                assertEquals(form, canonicalizer.canonicalize(dictionary.get(member)));
+            }
+        }
+        assertEquals(dictionary.size(), total);
+    }
+
+    // Test that the decision tree solves every target within the attempt limit
+    @Test
+    void testDecisionTree(@TempDir Path directory) throws Exception {
+        EquationDictionary dictionary = EquationDictionary.forLength(5);
+        Path file = directory.resolve("equations5.tree");
+        // Shards built in this process; the work directory is gone once the tree is merged
+        DecisionTree tree = new DecisionTreeBuilder(dictionary, directory.resolve("work")).build(file, 0);
+        assertFalse(Files.exists(directory.resolve("work")));
+        assertTrue(tree.getMaxGuesses() <= INumberleModel.MAX_ATTEMPTS);
+
+        NumberleModel model = new NumberleModel(dictionary);
+        NumberleController controller = new NumberleController(model);
+        DecisionTreeSolver solver = new DecisionTreeSolver(tree, dictionary,
+                new EntropySolver(dictionary, null, ForkJoinPool.commonPool()));
+        controller.setSolver(solver);
+        long total = 0;
+        for (int target = 0; target < dictionary.size(); target++) {
+            model.initialize(target);
+            solver.reset();
+            while (!controller.isGameOver()) {
+                controller.playSolverTurn();
+            }
+            assertTrue(controller.isGameWon());
+            assertTrue(solver.isOnTree());
+            total += controller.getLastResult().getAttempt();
+        }
+        assertEquals(tree.getAverageGuesses(), (double) total / dictionary.size(), 1e-9);
+
+        // A guess of the player's own leads off the tree, and the fallback takes over
+        String opener = dictionary.get(tree.guess(tree.root()));
+        String other = dictionary.get(0).equals(opener) ? dictionary.get(1) : dictionary.get(0);
+        model.initialize(dictionary.size() - 1);
+        solver.reset();
+        controller.processInput(other);
+        assertFalse(solver.isOnTree());
+        while (!controller.isGameOver()) {
+            controller.playSolverTurn();
+        }
+        assertTrue(controller.isGameWon());
+    }
+
+    // Test that a build with worker processes resumes a stopped build and makes the same tree
+    @Test
+    void testDecisionTreeResume(@TempDir Path directory) throws Exception {
+        EquationDictionary dictionary = EquationDictionary.forLength(5);
+        Path expected = directory.resolve("expected.tree");
+        new DecisionTreeBuilder(dictionary, directory.resolve("fresh")).build(expected, 0);
+
+        // Every shard gets built, but the merge cannot write into a missing directory
+        Path work = directory.resolve("work");
+        DecisionTreeBuilder builder = new DecisionTreeBuilder(dictionary, work);
+        assertThrows(IOException.class, () -> builder.build(directory.resolve("missing").resolve("tree"), 0));
+        List<Path> parts = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(work, "shard-*.part")) {
+            stream.forEach(parts::add);
+        }
+        Collections.sort(parts);
+        assertTrue(parts.size() >= 3);
+        // Keep one finished part; another shard was claimed by a worker that died before finishing
+        for (Path part : parts.subList(1, parts.size())) {
+            Files.delete(part);
+        }
+        String stale = parts.get(1).getFileName().toString().replace(".part", ".claim");
+        Files.write(work.resolve(stale), "0".getBytes(StandardCharsets.US_ASCII));
+
+        Path file = directory.resolve("resumed.tree");
+        DecisionTree tree = builder.build(file, 2);
+        assertFalse(Files.exists(work));
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(file));
+        assertTrue(tree.getMaxGuesses() <= INumberleModel.MAX_ATTEMPTS);
+    }
+
+    // Test that the difficulty index samples targets from the requested band
+    @Test
+    void testDifficultyIndex() throws IOException {
+        EquationDictionary dictionary = EquationDictionary.forLength(5);
+        DifficultyIndex index = DifficultyIndex.forDictionary(dictionary);
+        assertEquals(dictionary.size(), index.size());
+        assertEquals(0, index.difficultyOf(index.getOpener()));
+        long easy = 0;
+        long hard = 0;
+        for (long seed = 0; seed < 10_000; seed++) {
+            assertEquals(index.sample(DifficultyIndex.Band.HARD, seed), index.sample(DifficultyIndex.Band.HARD, seed));
+            easy += index.difficultyOf(index.sample(DifficultyIndex.Band.EASY, seed));
+            hard += index.difficultyOf(index.sample(DifficultyIndex.Band.HARD, seed));
+        }
+        assertTrue(easy < hard, "Hard targets should leave more candidates than easy ones.");
+
+        NumberleModel model = new NumberleModel(dictionary);
+        model.setDifficulty(DifficultyIndex.Band.HARD);
+        model.startNewGame(42);
+        assertEquals(dictionary.get(index.sample(DifficultyIndex.Band.HARD, 42)), model.getTargetEquation());
+
+        // A changed dictionary only rescores the opener's buckets whose members changed
+        Path directory = Files.createTempDirectory("difficulty");
+        List<String> kept = new ArrayList<>();
+        for (int entry = 1; entry < dictionary.size(); entry++) {
+            kept.add(dictionary.get(entry));
+        }
+        Files.write(directory.resolve("smaller.txt"), kept);
+        EquationDictionary.compile(directory.resolve("smaller.txt"), directory.resolve("smaller.dict"));
+        EquationDictionary smaller = EquationDictionary.open(directory.resolve("smaller.dict"));
+        Path file = directory.resolve("smaller.difficulty");
+        int rescored = DifficultyIndex.build(smaller, file, index, ForkJoinPool.commonPool());
+        assertEquals(1, rescored);
+        DifficultyIndex rebuilt = DifficultyIndex.open(file);
+        assertEquals(dictionary.get(index.getOpener()), smaller.get(rebuilt.getOpener()));
+
+        // Each dictionary has a file of its own, built ahead of time from the newest one of its length
+        assertNotEquals(DifficultyIndex.indexFile(dictionary), DifficultyIndex.indexFile(smaller));
+        Path full = directory.resolve(DifficultyIndex.indexFile(dictionary));
+        Path built = directory.resolve(DifficultyIndex.indexFile(smaller));
+        Files.copy(DifficultyIndex.indexFile(dictionary), full);
+        DifficultyIndex.main(new String[]{directory.resolve("smaller.dict").toString(), directory.toString()});
+        DifficultyIndex ahead = DifficultyIndex.open(built);
+        assertEquals(rebuilt.getOpener(), ahead.getOpener());
+        for (int entry = 0; entry < smaller.size(); entry++) {
+            assertEquals(rebuilt.difficultyOf(entry), ahead.difficultyOf(entry));
+        }
+        for (Path name : new Path[]{full, built, directory.resolve("smaller.txt"), directory.resolve("smaller.dict"), file}) {
+            Files.delete(name);
+        }
+        Files.delete(directory);
+    }
+
+    // Test that the board grid paints scored rows from its state arrays
+    @Test
+    void testBoardGridPaint() {
+        String target = model.getTargetEquation();
+        GuessResult result = new GuessResult(1, target, Feedback.allCorrect(target.length()));
+        BoardGrid grid = new BoardGrid(2, MultiBoardModel.attemptsFor(2), target.length());
+        grid.setSize(800, 400);
+        assertEquals(0, greenPixels(grid, 0, 800));
+        grid.show(0, result);
+        int turning = greenPixels(grid, 0, 800); // The row turns over one tile after another
+
+        grid.setAnimated(false);
+        grid.show(0, result);
+        assertTrue(greenPixels(grid, 0, 400) > turning, "The solved row should be painted green.");
+        assertEquals(0, greenPixels(grid, 400, 800));
+        grid.clear();
+        assertEquals(0, greenPixels(grid, 0, 800));
+
+        Keypad keypad = new Keypad();
+        keypad.setState('7', Feedback.MISPLACED);
+        assertEquals(Feedback.MISPLACED, keypad.getState('7'));
+        keypad.reset();
+        assertEquals(-1, keypad.getState('7'));
+    }
+
+    private static int greenPixels(BoardGrid grid, int fromX, int toX) {
+        BufferedImage image = new BufferedImage(grid.getWidth(), grid.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        grid.paint(g);
+        g.dispose();
+        int count = 0;
+        for (int x = fromX; x < toX; x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if (image.getRGB(x, y) == Color.GREEN.getRGB()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Test that a session counts attempts down to a loss and that concurrent guesses never lose an update
+    @Test
+    void testGameSessionGuess() throws Exception {
+        EquationDictionary dictionary = EquationDictionary.forLength(7);
+        String target = dictionary.get(0);
+        String wrong = dictionary.get(1);
+        for (int i = 0; i < dictionary.size(); i += 101) {
+            assertEquals(Feedback.score(wrong, dictionary.get(i)), dictionary.score(wrong, i));
+        }
+        GameSession won = new GameSession(1, dictionary, 0);
+        long outcome = won.guess(wrong);
+        assertEquals(Feedback.score(wrong, target), GameSession.codeOf(outcome));
+        assertEquals(INumberleModel.MAX_ATTEMPTS - 1, GameSession.attemptsOf(outcome));
+        assertEquals(GameSession.PLAYING, GameSession.statusOf(outcome));
+        assertEquals(INumberleModel.MAX_ATTEMPTS - 1, won.getRemainingAttempts());
+        outcome = won.guess(target);
+        assertEquals(Feedback.allCorrect(7), GameSession.codeOf(outcome));
+        assertEquals(GameSession.WON, GameSession.statusOf(outcome));
+        assertEquals(GameSession.WON, won.getStatus());
+        assertEquals(INumberleModel.MAX_ATTEMPTS - 1, won.getRemainingAttempts()); // The winning guess is free
+        assertEquals(-1, won.guess(wrong));
+
+        // Many threads race for the same session; exactly MAX_ATTEMPTS guesses are scored, and each
+        // outcome reports the attempts its own guess left
+        GameSession raced = new GameSession(2, dictionary, 0);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        AtomicInteger scored = new AtomicInteger();
+        List<Long> outcomes = new CopyOnWriteArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    long result = raced.guess(wrong);
+                    if (result >= 0) {
+                        scored.incrementAndGet();
+                        outcomes.add(result);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(INumberleModel.MAX_ATTEMPTS, scored.get());
+        boolean[] left = new boolean[INumberleModel.MAX_ATTEMPTS];
+        for (long result : outcomes) {
+            int attempts = GameSession.attemptsOf(result);
+            assertFalse(left[attempts], "Two guesses reported " + attempts + " attempts left");
+            left[attempts] = true;
+            assertEquals(attempts == 0 ? GameSession.LOST : GameSession.PLAYING, GameSession.statusOf(result));
+        }
+        assertEquals(0, raced.getRemainingAttempts());
+        assertEquals(GameSession.LOST, raced.getStatus());
+        assertEquals(0, raced.getTargetIndex());
+    }
+
+    // Test every server command and its error replies
+    @Test
+    void testGameServerCommands() throws IOException {
+        EquationDictionary dictionary = EquationDictionary.forLength(7);
+        GameServer server = new GameServer(dictionary, 0, GameServer.DEFAULT_IDLE_TIMEOUT_MILLIS);
+        EquationEvaluator evaluator = new EquationEvaluator();
+        assertEquals("PONG", server.execute("PING", evaluator));
+        assertEquals("OK 1 7 " + INumberleModel.MAX_ATTEMPTS, server.execute("NEW", evaluator));
+        assertEquals(1, server.getSessionCount());
+        String target = server.getSession(1).getTargetEquation();
+        String wrong = target.equals("1+2+3=6") ? "1+2+4=7" : "1+2+3=6";
+
+        assertEquals("ERROR unknown session", server.execute("GUESS 9 " + wrong, evaluator));
+        assertEquals("ERROR unknown session", server.execute("GUESS x " + wrong, evaluator));
+        assertEquals("ERROR usage: GUESS id equation", server.execute("GUESS 1", evaluator));
+        assertEquals("ERROR invalid length", server.execute("GUESS 1 1+1=2", evaluator));
+        assertEquals("ERROR " + EquationEvaluator.describe(EquationEvaluator.NOT_EQUAL),
+                server.execute("GUESS 1 1+1=3+0", evaluator));
+        assertEquals(INumberleModel.MAX_ATTEMPTS, server.getSession(1).getRemainingAttempts());
+
+        int code = Feedback.score(wrong, target);
+        StringBuilder states = new StringBuilder();
+        for (int i = 0; i < 7; i++) {
+            states.append(Feedback.state(code, i));
+        }
+        assertEquals("FEEDBACK " + code + " " + states + " " + (INumberleModel.MAX_ATTEMPTS - 1) + " PLAYING",
+                server.execute("GUESS 1 " + wrong, evaluator));
+        assertEquals("ERROR game in progress", server.execute("TARGET 1", evaluator));
+        assertTrue(server.execute("GUESS 1 " + target, evaluator).endsWith(" WON"));
+        assertEquals("ERROR game over", server.execute("GUESS 1 " + target, evaluator));
+        assertEquals("TARGET " + target, server.execute("TARGET 1", evaluator));
+        assertEquals("ERROR unknown session", server.execute("TARGET 9", evaluator));
+
+        assertEquals("ERROR bad session id", server.execute("QUIT x", evaluator));
+        assertEquals("OK", server.execute("QUIT 1", evaluator));
+        assertEquals(0, server.getSessionCount());
+        assertEquals("ERROR unknown command", server.execute("HELLO", evaluator));
+    }
+
+    // Test that only sessions idle for longer than the timeout are evicted
+    @Test
+    void testGameServerEviction() throws IOException {
+        long[] now = {1_000_000};
+        GameServer server = new GameServer(EquationDictionary.forLength(7), 0, 1000, () -> now[0]);
+        EquationEvaluator evaluator = new EquationEvaluator();
+        server.execute("NEW", evaluator);
+        server.execute("NEW", evaluator);
+        now[0] += 600;
+        String target = server.getSession(2).getTargetEquation();
+        server.execute("GUESS 2 " + target, evaluator); // Keeps session 2 alive
+        now[0] += 600;
+        server.evictIdleSessions();
+        assertEquals(1, server.getSessionCount());
+        assertNull(server.getSession(1));
+        assertNotNull(server.getSession(2));
+        now[0] += 1001;
+        server.evictIdleSessions();
+        assertEquals(0, server.getSessionCount());
+    }
 }
@@ -0,0 +1,36 @@
+// NumberleSolver.java
+
+/**
+ * An automated player. The controller asks for a guess, submits it to the model and reports
+ * every scored guess back, including guesses the solver did not make itself.
+ */
+public interface NumberleSolver {
+    /**
+     * Forgets all knowledge from the previous game.
+     */
+    void reset();
+
+    /**
+     * Forgets all knowledge from the previous game, for a game started from {@code seed}. A
+     * solver that makes random choices derives them from the seed, so a seeded game is played
+     * the same way every time.
+     */
+    default void reset(long seed) {
+        reset();
+    }
+
+    /**
+     * Returns the guess to play next.
+     */
+    String nextGuess();
+
+    /**
+     * Narrows the solver's knowledge with a scored guess.
+     */
+    void observe(GuessResult result);
+
+    /**
+     * Returns the number of dictionary equations still consistent with every observed guess.
+     */
+    int getCandidateCount();
+}
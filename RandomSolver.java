@@ -0,0 +1,65 @@
+// RandomSolver.java
+import java.util.SplittableRandom;
+
+/**
+ * Baseline player that guesses a uniformly random equation among those still consistent with
+ * the feedback. Its candidates are a {@link CandidateFilter} bitset, so a turn costs one scan of
+ * {@code size / 64} words. A game started from a seed draws its guesses from that seed, so it
+ * is played the same way every time.
+ */
+public class RandomSolver implements NumberleSolver {
+    private final EquationDictionary dictionary;
+    private final CandidateFilter filter;
+    private final long[] candidates;
+    private int candidateCount;
+    private SplittableRandom random = new SplittableRandom();
+
+    public RandomSolver(EquationDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.filter = CandidateFilter.forDictionary(dictionary);
+        this.candidates = filter.all();
+        this.candidateCount = dictionary.size();
+    }
+
+    @Override
+    public void reset() {
+        filter.reset(candidates);
+        candidateCount = dictionary.size();
+    }
+
+    @Override
+    public void reset(long seed) {
+        reset();
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public String nextGuess() {
+        if (candidateCount == 0) {
+            throw new IllegalStateException("No equation is consistent with the feedback so far");
+        }
+        int skip = random.nextInt(candidateCount);
+        for (int word = 0; ; word++) {
+            long bits = candidates[word];
+            int count = Long.bitCount(bits);
+            if (skip >= count) {
+                skip -= count;
+                continue;
+            }
+            for (; skip > 0; skip--) {
+                bits &= bits - 1; // Drop the lowest candidates until the chosen one is lowest
+            }
+            return dictionary.get((word << 6) + Long.numberOfTrailingZeros(bits));
+        }
+    }
+
+    @Override
+    public void observe(GuessResult result) {
+        candidateCount = filter.apply(candidates, result.getGuess(), result.getCode());
+    }
+
+    @Override
+    public int getCandidateCount() {
+        return candidateCount;
+    }
+}
@@ -0,0 +1,68 @@
+// ScriptedSolver.java
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Player that replays a fixed list of guesses, one per line of a script file, from the first
+ * line in every game. When the script runs out it starts over, so a script of rejected guesses
+ * never ends a game on its own; callers bound the number of turns.
+ */
+public class ScriptedSolver implements NumberleSolver {
+    private final String[] script;
+    private final CandidateFilter filter;
+    private final long[] candidates;
+    private final int size;
+    private int candidateCount;
+    private int turn;
+
+    public ScriptedSolver(List<String> script, EquationDictionary dictionary) {
+        if (script.isEmpty()) {
+            throw new IllegalArgumentException("The script contains no guesses");
+        }
+        this.script = script.toArray(new String[0]);
+        this.filter = CandidateFilter.forDictionary(dictionary);
+        this.candidates = filter.all();
+        this.size = dictionary.size();
+        this.candidateCount = size;
+    }
+
+    /**
+     * Reads a script file, skipping blank lines and lines starting with '#'.
+     */
+    public static List<String> readScript(Path file) throws IOException {
+        List<String> script = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                script.add(line);
+            }
+        }
+        return script;
+    }
+
+    @Override
+    public void reset() {
+        filter.reset(candidates);
+        candidateCount = size;
+        turn = 0;
+    }
+
+    @Override
+    public String nextGuess() {
+        return script[turn++ % script.length];
+    }
+
+    @Override
+    public void observe(GuessResult result) {
+        candidateCount = filter.apply(candidates, result.getGuess(), result.getCode());
+    }
+
+    @Override
+    public int getCandidateCount() {
+        return candidateCount;
+    }
+}
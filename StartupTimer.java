@@ -0,0 +1,41 @@
+// StartupTimer.java
+import java.lang.management.ManagementFactory;
+
+/**
+ * Time to first interactive: from the start of the JVM until the first game is on screen and
+ * accepts a guess.
+ * <p>
+ * Both apps take {@code --startup-check}, which starts up as usual, reports the time and exits
+ * with status 1 if it exceeded the budget of {@value #DEFAULT_BUDGET_MILLIS} ms, or
+ * {@code -Dnumberle.startup.budget} ms if given. The {@code fast-start} build profile runs this
+ * check as the training run for its class-data-sharing archive, so a build that gets slower than
+ * the budget fails.
+ */
+public final class StartupTimer {
+    public static final long DEFAULT_BUDGET_MILLIS = 1500;
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Returns the milliseconds since the JVM started. The JVM records its start time itself, so
+     * the management classes are only loaded when this is called.
+     */
+    public static long elapsedMillis() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    public static long budgetMillis() {
+        return Long.getLong("numberle.startup.budget", DEFAULT_BUDGET_MILLIS);
+    }
+
+    /**
+     * Prints the time to first interactive and exits, with status 1 if it was over budget.
+     */
+    public static void reportAndExit(String app) {
+        long elapsed = elapsedMillis();
+        long budget = budgetMillis();
+        System.err.println(app + " time to first interactive: " + elapsed + " ms (budget " + budget + " ms)");
+        System.exit(elapsed > budget ? 1 : 0);
+    }
+}
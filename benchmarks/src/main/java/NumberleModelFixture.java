@@ -0,0 +1,177 @@
+// NumberleModelFixture.java
+import numberle.benchmarks.ModelFixture;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Default-package side of the benchmarks; see {@link ModelFixture}.
+ */
+public class NumberleModelFixture implements ModelFixture {
+    private static final int INPUTS = 1024; // power of two, so the rotation is a mask
+
+    private EquationDictionary dictionary;
+    private Path binary;
+    private Path scratch;
+    private NumberleModel model;
+    private NumberleController controller;
+    private EquationSet equationSet;
+    private NumberleModel restored;
+    private NumberleModel snapshotModel;
+    private byte[] snapshot;
+    private final String[] equations = new String[INPUTS];
+    private final String[] wrongEquations = new String[INPUTS];
+    private final String[] expressions = new String[INPUTS];
+    private int next;
+    private int turn;
+
+    @Override
+    public void setUp(int length, int dictionarySize) throws IOException {
+        EquationDictionary full = EquationDictionary.forLength(length);
+        if (dictionarySize <= 0 || dictionarySize >= full.size()) {
+            dictionary = full;
+            binary = Paths.get(EquationDictionary.binaryFileName(length));
+        } else {
+            scratch = Files.createTempDirectory("numberle-bench");
+            Path text = scratch.resolve(EquationGenerator.dictionaryFileName(length));
+            try (BufferedWriter writer = Files.newBufferedWriter(text, StandardCharsets.US_ASCII)) {
+                for (int i = 0; i < dictionarySize; i++) {
+                    writer.write(full.get((int) ((long) i * full.size() / dictionarySize)));
+                    writer.newLine();
+                }
+            }
+            binary = scratch.resolve(EquationDictionary.binaryFileName(length));
+            EquationDictionary.compile(text, binary);
+            dictionary = EquationDictionary.open(binary);
+        }
+        for (int i = 0; i < INPUTS; i++) {
+            String equation = dictionary.get((int) ((long) i * 7919 % dictionary.size()));
+            equations[i] = equation;
+            expressions[i] = equation.substring(0, equation.indexOf('='));
+            // The right-hand side always ends in a digit; bumping it makes the equation false
+            char last = equation.charAt(equation.length() - 1);
+            wrongEquations[i] = equation.substring(0, equation.length() - 1) + (char) ('0' + (last - '0' + 1) % 10);
+        }
+        model = new NumberleModel(dictionary);
+        model.loadEquations();
+        model.initialize();
+        controller = new NumberleController(model);
+        equationSet = EquationSet.forDictionary(dictionary);
+        snapshotModel = new NumberleModel(dictionary);
+        snapshotModel.loadEquations();
+        snapshotModel.initialize(0);
+        for (int i = 1; i <= 3 && !snapshotModel.isGameOver(); i++) {
+            snapshotModel.processInput(equations[i]);
+        }
+        snapshot = snapshotModel.snapshot();
+        restored = new NumberleModel(dictionary);
+        restored.loadEquations();
+    }
+
+    @Override
+    public void tearDown() throws IOException {
+        if (scratch != null) {
+            try (Stream<Path> files = Files.walk(scratch)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private int advance() {
+        return next = (next + 1) & (INPUTS - 1);
+    }
+
+    @Override
+    public int evaluateExpression() {
+        return model.evaluateExpression(expressions[advance()]);
+    }
+
+    @Override
+    public boolean isCorrectEquation() {
+        int i = advance();
+        return model.isCorrectEquation((i & 1) == 0 ? equations[i] : wrongEquations[i]);
+    }
+
+    @Override
+    public boolean containsEquation() {
+        int i = advance();
+        return equationSet.contains((i & 1) == 0 ? equations[i] : wrongEquations[i]);
+    }
+
+    @Override
+    public boolean isValidInput() {
+        return model.isValidInput(equations[advance()]);
+    }
+
+    @Override
+    public int scoreFeedback() {
+        int i = advance();
+        return Feedback.score(equations[i], equations[(i + 1) & (INPUTS - 1)]);
+    }
+
+    @Override
+    public int updateGuess() {
+        if (++turn == INumberleModel.MAX_ATTEMPTS) {
+            turn = 0;
+            model.initialize();
+        }
+        model.updateGuess(equations[advance()]);
+        return model.getCandidateCount();
+    }
+
+    @Override
+    public void setMetrics(boolean enabled) {
+        model.setMetrics(enabled ? new GameMetrics() : null);
+    }
+
+    @Override
+    public boolean processInput() {
+        if (model.isGameOver()) {
+            model.initialize();
+        }
+        int i = advance();
+        return model.processInput((i & 3) == 0 ? wrongEquations[i] : equations[i]);
+    }
+
+    @Override
+    public byte[] snapshot() {
+        return snapshotModel.snapshot();
+    }
+
+    @Override
+    public int restore() {
+        restored.restore(snapshot);
+        return restored.getRemainingAttempts();
+    }
+
+    @Override
+    public int loadEquations() {
+        NumberleModel fresh = new NumberleModel(dictionary);
+        fresh.loadEquations();
+        return fresh.getCandidateCount();
+    }
+
+    @Override
+    public int openDictionary() throws IOException {
+        return EquationDictionary.open(binary).size();
+    }
+
+    @Override
+    public int playGame() {
+        controller.startNewGame();
+        while (!controller.isGameOver()) {
+            List<String> candidates = controller.getCandidateSample(1);
+            controller.processInput(candidates.get(0));
+        }
+        return model.getLastResult().getAttempt();
+    }
+}
@@ -0,0 +1,34 @@
+// BenchmarkRunner.java
+package numberle.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Entry point of the benchmark jar. Accepts the usual JMH command line and always attaches the
+ * GC profiler, so every result comes with its allocation rate per operation.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        Runner runner = new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build());
+        if (commandLine.shouldList()) {
+            runner.list();
+            return;
+        }
+        runner.run();
+    }
+}
@@ -0,0 +1,55 @@
+// InstrumentationBenchmark.java
+package numberle.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the metrics registry on {@code processInput}, with and without a registry attached.
+ * Flight Recorder overhead can be compared by adding
+ * {@code -jvmArgsAppend -XX:StartFlightRecording} to the command line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentationBenchmark {
+    @Param({"7"})
+    public int length;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private ModelFixture fixture;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = ModelFixture.create();
+        fixture.setUp(length, 0);
+        fixture.setMetrics(metrics);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        fixture.tearDown();
+    }
+
+    @Benchmark
+    public boolean processInput() {
+        return fixture.processInput();
+    }
+}
@@ -0,0 +1,108 @@
+// ModelBenchmark.java
+package numberle.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of the model, the controller and the dictionary, per equation length and
+ * dictionary size. A {@code dictionarySize} of 0 uses the full dictionary.
+ * <p>
+ * Run {@code java -jar benchmarks/target/benchmarks.jar} from the project root; allocation rates
+ * are reported by the GC profiler that {@link BenchmarkRunner} adds to every run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+    @Param({"5", "7", "8"})
+    public int length;
+
+    @Param({"128", "0"})
+    public int dictionarySize;
+
+    private ModelFixture fixture;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = ModelFixture.create();
+        fixture.setUp(length, dictionarySize);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        fixture.tearDown();
+    }
+
+    @Benchmark
+    public int evaluateExpression() {
+        return fixture.evaluateExpression();
+    }
+
+    @Benchmark
+    public boolean isCorrectEquation() {
+        return fixture.isCorrectEquation();
+    }
+
+    @Benchmark
+    public boolean containsEquation() {
+        return fixture.containsEquation();
+    }
+
+    @Benchmark
+    public boolean isValidInput() {
+        return fixture.isValidInput();
+    }
+
+    @Benchmark
+    public int scoreFeedback() {
+        return fixture.scoreFeedback();
+    }
+
+    @Benchmark
+    public int updateGuess() {
+        return fixture.updateGuess();
+    }
+
+    @Benchmark
+    public byte[] snapshot() {
+        return fixture.snapshot();
+    }
+
+    @Benchmark
+    public int restore() {
+        return fixture.restore();
+    }
+
+    @Benchmark
+    public int loadEquations() {
+        return fixture.loadEquations();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int openDictionary() throws Exception {
+        return fixture.openDictionary();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int playGame() {
+        return fixture.playGame();
+    }
+}
@@ -0,0 +1,79 @@
+// ModelFixture.java
+package numberle.benchmarks;
+
+/**
+ * The operations measured by {@link ModelBenchmark}.
+ * <p>
+ * The game classes live in the default package, which JMH does not accept for benchmark classes
+ * and which a named package cannot import. The benchmarks therefore drive the game through this
+ * interface, implemented by the default-package {@code NumberleModelFixture} and created
+ * reflectively once per trial. The call sites are monomorphic, so the JIT inlines straight
+ * through the interface and the measurements are those of the game code itself.
+ * <p>
+ * Every operation consumes the next input from a fixed, pre-built rotation, so the hot path
+ * allocates nothing that the game itself does not allocate.
+ */
+public interface ModelFixture {
+    /**
+     * Prepares a model over the dictionary of the given equation length, reduced to an evenly
+     * spaced subset of {@code dictionarySize} equations unless it is 0 or exceeds the full size.
+     */
+    void setUp(int length, int dictionarySize) throws Exception;
+
+    void tearDown() throws Exception;
+
+    /** Evaluates the left-hand side of the next equation. */
+    int evaluateExpression();
+
+    /** Checks the next equation, alternating between true and false ones. */
+    boolean isCorrectEquation();
+
+    /**
+     * Looks the next equation up in the dictionary's equation set, alternating between true and
+     * false ones like {@link #isCorrectEquation()}.
+     */
+    boolean containsEquation();
+
+    /** Checks the format of the next equation. */
+    boolean isValidInput();
+
+    /** Scores the next guess against the next target, without touching the model. */
+    int scoreFeedback();
+
+    /**
+     * Records the next guess in the model, starting a new game every {@code MAX_ATTEMPTS}
+     * guesses so the candidate set does not run dry.
+     */
+    int updateGuess();
+
+    /** Attaches a fresh metrics registry to the model, or detaches it. */
+    void setMetrics(boolean enabled);
+
+    /**
+     * Submits the next guess through {@code processInput}, one in four of them a false equation,
+     * starting a new game whenever one ends.
+     */
+    boolean processInput();
+
+    /** Encodes the game in progress, three guesses in. */
+    byte[] snapshot();
+
+    /** Restores the game in progress from its snapshot into a second model. */
+    int restore();
+
+    /** Loads the equations into a fresh model, as every new model does. */
+    int loadEquations();
+
+    /** Maps the binary dictionary from disk. */
+    int openDictionary() throws Exception;
+
+    /**
+     * Plays one game through the controller, always guessing the first equation still
+     * consistent with the feedback, and returns the number of guesses it took.
+     */
+    int playGame();
+
+    static ModelFixture create() throws ReflectiveOperationException {
+        return (ModelFixture) Class.forName("NumberleModelFixture").getDeclaredConstructor().newInstance();
+    }
+}